@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.entity.EventOperation;
+import ru.yandex.practicum.filmorate.entity.EventType;
+import ru.yandex.practicum.filmorate.repository.EventLogger;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость регистрации события для потока запроса: каждая итерация - пачка из 5000 событий, перед итерацией
+ * фоновой записи даётся время разобрать очередь. Синхронная запись сравнивается
+ * с -jvmArgs -Dfilmorate.events.write-behind.enabled=false
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 5000)
+@Measurement(iterations = 10, batchSize = 5000)
+@Fork(1)
+public class EventLoggerBenchmark {
+    private final SplittableRandom random = new SplittableRandom(7);
+    private EventLogger eventLogger;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        eventLogger = db.bean(EventLogger.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void pause() throws InterruptedException {
+        TimeUnit.SECONDS.sleep(1);
+    }
+
+    @Benchmark
+    public void logEvent(SeededDatabase db) {
+        eventLogger.logEvent(db.randomUserId(random), EventType.LIKE, EventOperation.ADD, db.randomFilmId(random));
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.entity.Event;
+import ru.yandex.practicum.filmorate.repository.EventStorage;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventStorageBenchmark {
+    private final SplittableRandom random = new SplittableRandom(7);
+    private EventStorage eventStorage;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        eventStorage = db.bean(EventStorage.class);
+    }
+
+    @Benchmark
+    public List<Event> getUserEvents(SeededDatabase db) {
+        return eventStorage.getUserEvents(db.randomUserId(random));
+    }
+
+    @Benchmark
+    public List<Event> getUserEventsPage(SeededDatabase db) {
+        return eventStorage.getUserEventsBefore(db.randomUserId(random), Long.MAX_VALUE, 20);
+    }
+}
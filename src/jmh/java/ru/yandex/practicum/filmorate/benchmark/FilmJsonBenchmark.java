@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import ru.yandex.practicum.filmorate.controller.FilmJsonMessageConverter;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Запись списка закэшированных фильмов в тело ответа: стандартный конвертер Jackson против склейки
+ * готовых JSON фрагментов (filmorate.films.json-cache.enabled)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmJsonBenchmark {
+    private static final Type FILM_LIST = ResolvableType.forClassWithGenerics(List.class, Film.class).getType();
+
+    @Param({"10", "100"})
+    public int count;
+
+    private final SplittableRandom random = new SplittableRandom(7);
+    private final BufferedOutputMessage output = new BufferedOutputMessage();
+    private MappingJackson2HttpMessageConverter jackson;
+    private FilmJsonMessageConverter fragments;
+    private List<Film> films;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        ObjectMapper objectMapper = db.bean(ObjectMapper.class);
+        jackson = new MappingJackson2HttpMessageConverter(objectMapper);
+        fragments = new FilmJsonMessageConverter(objectMapper, db.bean(FilmCache.class));
+        films = db.bean(FilmStorage.class).getListOfFilmsById(Stream.generate(() -> db.randomFilmId(random))
+                .distinct()
+                .limit(count)
+                .toList());
+    }
+
+    @Benchmark
+    public int jackson() throws IOException {
+        output.reset();
+        jackson.write(films, FILM_LIST, MediaType.APPLICATION_JSON, output);
+        return output.body.size();
+    }
+
+    @Benchmark
+    public int cachedFragments() throws IOException {
+        output.reset();
+        fragments.write(films, FILM_LIST, MediaType.APPLICATION_JSON, output);
+        return output.body.size();
+    }
+
+    private static final class BufferedOutputMessage implements HttpOutputMessage {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+        private HttpHeaders headers = new HttpHeaders();
+
+        void reset() {
+            body.reset();
+            headers = new HttpHeaders();
+        }
+
+        @Override
+        public ByteArrayOutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.service.FilmCrudService;
+import ru.yandex.practicum.filmorate.service.FilmLikeService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmLikeBenchmark {
+    private final SplittableRandom random = new SplittableRandom(7);
+    private FilmCrudService filmCrudService;
+    private FilmLikeService filmLikeService;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        filmCrudService = db.bean(FilmCrudService.class);
+        filmLikeService = db.bean(FilmLikeService.class);
+    }
+
+    @Benchmark
+    public List<Film> getCommonFilms(SeededDatabase db) {
+        return filmCrudService.getCommonFilms(db.randomUserId(random), db.randomUserId(random));
+    }
+
+    @Benchmark
+    public Collection<Film> getMostLikedFilms() {
+        return filmLikeService.getMostLikedFilms(10, null, null);
+    }
+
+    @Benchmark
+    public boolean hasLike(SeededDatabase db) {
+        return filmLikeService.hasLike(db.randomFilmId(random), db.randomUserId(random));
+    }
+}
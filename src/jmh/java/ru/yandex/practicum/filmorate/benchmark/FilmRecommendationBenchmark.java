@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmRecommendationBenchmark {
+    private final SplittableRandom random = new SplittableRandom(7);
+    private FilmRecommendationService recommendationService;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        recommendationService = db.bean(FilmRecommendationService.class);
+    }
+
+    @Benchmark
+    public List<Film> getRecommendedFilms(SeededDatabase db) {
+        return recommendationService.getRecommendedFilms(db.randomUserId(random));
+    }
+}
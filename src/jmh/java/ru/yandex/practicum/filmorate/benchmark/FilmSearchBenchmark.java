@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.repository.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmLikeService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmSearchBenchmark {
+    private final SplittableRandom random = new SplittableRandom(7);
+    private FilmLikeService filmLikeService;
+    private FilmSearchIndex searchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        filmLikeService = db.bean(FilmLikeService.class);
+        searchIndex = db.bean(FilmSearchIndex.class);
+    }
+
+    @Benchmark
+    public Collection<Film> searchByTitle() {
+        return filmLikeService.getFilmsByQuery(randomWord(), "title");
+    }
+
+    @Benchmark
+    public Collection<Film> searchByTitleAndDirector() {
+        return filmLikeService.getFilmsByQuery(randomWord(), "title,director");
+    }
+
+    /**
+     * Только поиск по индексу, без загрузки найденных фильмов из БД; запрос выбирает единицы фильмов
+     */
+    @Benchmark
+    public List<Long> searchIndexSelective(SeededDatabase db) {
+        return searchIndex.search(randomWord() + " " + db.randomFilmId(random), true, true);
+    }
+
+    private String randomWord() {
+        return SeededDatabase.TITLE_WORDS[random.nextInt(SeededDatabase.TITLE_WORDS.length)];
+    }
+}
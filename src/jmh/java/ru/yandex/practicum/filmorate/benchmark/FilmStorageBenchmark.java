@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.entity.Genre;
+import ru.yandex.practicum.filmorate.entity.Mpa;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+    private final SplittableRandom random = new SplittableRandom(7);
+    private FilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        filmStorage = db.bean(FilmStorage.class);
+    }
+
+    @Benchmark
+    public List<Film> getFilmsPage(SeededDatabase db) {
+        return filmStorage.getFilmsPage(db.randomFilmId(random), 100);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void exportFilms(Blackhole blackhole) {
+        filmStorage.exportFilms(500, blackhole::consume);
+    }
+
+    @Benchmark
+    public List<Film> getListOfFilmsById(SeededDatabase db) {
+        long firstId = db.randomFilmId(random);
+        List<Long> filmIds = LongStream.range(0, 20)
+                .map(i -> (firstId + i * 97) % db.films + 1)
+                .boxed()
+                .toList();
+        return filmStorage.getListOfFilmsById(filmIds);
+    }
+
+    @Benchmark
+    public Film saveFilm() {
+        return filmStorage.saveFilm(Film.builder()
+                .name("Benchmark film")
+                .description("Inserted by benchmark")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new Mpa(1L, null))
+                .genres(Set.of(new Genre(1L, null), new Genre(2L, null)))
+                .build());
+    }
+}
@@ -0,0 +1,304 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import ru.yandex.practicum.filmorate.entity.*;
+import ru.yandex.practicum.filmorate.repository.*;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Проверка планов запросов хранилищ. Вызывает методы всех *Storage на засеянной БД, перехватывает выполненные
+ * SQL вместе с параметрами и для каждого запроса, читающего таблицы, выполняет EXPLAIN с теми же параметрами.
+ * Завершается с кодом 1, если запрос читает какую-либо таблицу полным сканированием, кроме методов, которые
+ * по назначению читают таблицу целиком (отмечены {@link Scan#EXPECTED}).
+ * Запускается в фазе verify профиля jmh: mvn -Pjmh verify, либо отдельно: mvn -Pjmh test-compile exec:exec@query-plans
+ */
+public final class QueryPlanCheck {
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* ([\\w.\"]+)\\.tableScan");
+    private static final Set<String> EXPLAINABLE = Set.of("SELECT", "WITH", "UPDATE", "DELETE", "MERGE", "INSERT");
+
+    private final SeededDatabase db;
+    private final DataSource dataSource;
+    private final List<Captured> captured = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+    private int explained;
+
+    private QueryPlanCheck(SeededDatabase db) {
+        this.db = db;
+        JdbcTemplate jdbcTemplate = db.bean(JdbcTemplate.class);
+        this.dataSource = jdbcTemplate.getDataSource();
+        jdbcTemplate.setDataSource(new CapturingDataSource(dataSource));
+    }
+
+    public static void main(String[] args) throws Exception {
+        SeededDatabase db = new SeededDatabase();
+        db.users = 10_000;
+        db.films = 10_000;
+        db.likes = 100_000;
+        db.events = 100_000;
+        db.directors = 100;
+        db.reviews = 10_000;
+        db.reviewLikes = 20_000;
+        db.setUp();
+        List<String> failures;
+        try {
+            QueryPlanCheck check = new QueryPlanCheck(db);
+            check.run();
+            failures = check.failures;
+            System.out.printf("%nПроверено запросов: %d, с полным сканированием: %d%n", check.explained, failures.size());
+        } finally {
+            db.tearDown();
+        }
+        failures.forEach(System.out::println);
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private void run() throws SQLException {
+        FilmStorage films = db.bean(FilmStorage.class);
+        UserStorage users = db.bean(UserStorage.class);
+        DirectorStorage directors = db.bean(DirectorStorage.class);
+        ReviewStorage reviews = db.bean(ReviewStorage.class);
+        EventStorage events = db.bean(EventStorage.class);
+        LikeStorage likes = db.bean(LikeStorage.class);
+
+        check("FilmStorage.getAllFilms", Scan.EXPECTED, films::getAllFilms);
+        check("FilmStorage.getFilmsPage", Scan.INDEXED, () -> films.getFilmsPage(5_000, 100));
+        check("FilmStorage.exportFilms", Scan.EXPECTED, () -> films.exportFilms(500, chunk -> {
+        }));
+        check("FilmStorage.getFilmById", Scan.INDEXED, () -> films.getFilmById(42));
+        check("FilmStorage.existsById", Scan.INDEXED, () -> films.existsById(43));
+        check("FilmStorage.existsAllById", Scan.INDEXED, () -> films.existsAllById(List.of(1L, 2L, 3L)));
+        Film film = films.saveFilm(newFilm("Plan check"));
+        check("FilmStorage.saveFilm", Scan.INDEXED, () -> films.saveFilm(newFilm("Plan check 2")));
+        check("FilmStorage.saveFilms", Scan.INDEXED, () -> films.saveFilms(List.of(newFilm("Plan check 3"))));
+        check("FilmStorage.updateFilm", Scan.INDEXED, () -> films.updateFilm(film.toBuilder().name("Updated").build()));
+        check("FilmStorage.saveLikeToFilm", Scan.INDEXED, () -> films.saveLikeToFilm(film.getId(), 1));
+        check("FilmStorage.deleteLikeFromFilm", Scan.INDEXED, () -> films.deleteLikeFromFilm(film.getId(), 1));
+        check("FilmStorage.getAllMpa", Scan.EXPECTED, films::getAllMpa);
+        check("FilmStorage.getAllGenres", Scan.EXPECTED, films::getAllGenres);
+        check("FilmStorage.getGenre", Scan.INDEXED, () -> films.getGenre(1));
+        check("FilmStorage.getMpa", Scan.INDEXED, () -> films.getMpa(1));
+        check("FilmStorage.getListOfFilmsById", Scan.INDEXED, () -> films.getListOfFilmsById(List.of(3L, 1L, 2L)));
+        check("FilmStorage.getSortedByReleaseDateFilmsOfDirector", Scan.INDEXED,
+                () -> films.getSortedByReleaseDateFilmsOfDirector(1));
+        check("FilmStorage.getSortedByLikesFilmsOfDirector", Scan.INDEXED,
+                () -> films.getSortedByLikesFilmsOfDirector(1));
+        check("FilmStorage.deleteFilmById", Scan.INDEXED, () -> films.deleteFilmById(film.getId()));
+
+        check("UserStorage.getAllUsers", Scan.EXPECTED, users::getAllUsers);
+        check("UserStorage.getUsersPage", Scan.INDEXED, () -> users.getUsersPage(5_000, 100));
+        check("UserStorage.exportUsers", Scan.EXPECTED, () -> users.exportUsers(500, chunk -> {
+        }));
+        User user = users.saveUser(newUser("plan"));
+        check("UserStorage.saveUser", Scan.INDEXED, () -> users.saveUser(newUser("plan2")));
+        check("UserStorage.saveUsers", Scan.INDEXED, () -> users.saveUsers(List.of(newUser("plan3"))));
+        check("UserStorage.updateUser", Scan.INDEXED, () -> users.updateUser(user.toBuilder().name("Updated").build()));
+        check("UserStorage.getUserById", Scan.INDEXED, () -> users.getUserById(42));
+        check("UserStorage.existsById", Scan.INDEXED, () -> users.existsById(42));
+        check("UserStorage.existsAllById", Scan.INDEXED, () -> users.existsAllById(List.of(1L, 2L, 3L)));
+        check("UserStorage.saveFriendToUser", Scan.INDEXED, () -> users.saveFriendToUser(1, user.getId()));
+        check("UserStorage.removeFriend", Scan.INDEXED, () -> users.removeFriend(user.getId(), 1));
+        check("UserStorage.getUserFriends", Scan.INDEXED, () -> users.getUserFriends(1));
+        check("UserStorage.getListOfUsersById", Scan.INDEXED, () -> users.getListOfUsersById(List.of(3L, 1L, 2L)));
+        check("UserStorage.deleteUserById", Scan.INDEXED, () -> users.deleteUserById(user.getId()));
+
+        check("DirectorStorage.getAllDirectors", Scan.EXPECTED, directors::getAllDirectors);
+        check("DirectorStorage.getDirectorsPage", Scan.INDEXED, () -> directors.getDirectorsPage(10, 10));
+        check("DirectorStorage.getDirectorById", Scan.INDEXED, () -> directors.getDirectorById(1));
+        check("DirectorStorage.existsById", Scan.INDEXED, () -> directors.existsById(1));
+        check("DirectorStorage.existsAllById", Scan.INDEXED, () -> directors.existsAllById(List.of(1L, 2L)));
+        Director director = directors.saveDirector(Director.builder().name("Plan check").build());
+        check("DirectorStorage.saveDirector", Scan.INDEXED,
+                () -> directors.saveDirector(Director.builder().name("Plan check 2").build()));
+        check("DirectorStorage.updateDirector", Scan.INDEXED,
+                () -> directors.updateDirector(director.toBuilder().name("Updated").build()));
+        check("DirectorStorage.removeDirector", Scan.INDEXED, () -> directors.removeDirector(director.getId()));
+
+        Review review = reviews.saveReview(Review.builder().filmId(1L).userId(1L).isPositive(true).content("ok").build());
+        check("ReviewStorage.saveReview", Scan.INDEXED, () -> reviews.saveReview(
+                Review.builder().filmId(2L).userId(2L).isPositive(false).content("bad").build()));
+        check("ReviewStorage.updateReview", Scan.INDEXED,
+                () -> reviews.updateReview(review.toBuilder().content("better").build()));
+        check("ReviewStorage.getReviewById", Scan.INDEXED, () -> reviews.getReviewById(review.getReviewId()));
+        check("ReviewStorage.existsById", Scan.INDEXED, () -> reviews.existsById(review.getReviewId()));
+        check("ReviewStorage.existsAllById", Scan.INDEXED, () -> reviews.existsAllById(List.of(1L, 2L)));
+        check("ReviewStorage.getAllReviews", Scan.INDEXED, () -> reviews.getAllReviews(10));
+        check("ReviewStorage.getReviewsByFilmId", Scan.INDEXED, () -> reviews.getReviewsByFilmId(1, 10));
+        check("ReviewStorage.addLikeDislike", Scan.INDEXED, () -> reviews.addLikeDislike(review.getReviewId(), 2, 1));
+        check("ReviewStorage.removeLikeDislike", Scan.INDEXED,
+                () -> reviews.removeLikeDislike(review.getReviewId(), 2));
+        check("ReviewStorage.removeReview", Scan.INDEXED, () -> reviews.removeReview(review.getReviewId()));
+
+        check("EventStorage.getUserEvents", Scan.INDEXED, () -> events.getUserEvents(1));
+        check("EventStorage.getUserEventsBefore", Scan.INDEXED,
+                () -> events.getUserEventsBefore(1, Long.MAX_VALUE, 20));
+
+        check("LikeStorage.getMapOfLikesByPrimaryKey(user_id)", Scan.INDEXED,
+                () -> likes.getMapOfLikesByPrimaryKey(List.of(1L, 2L), "user_id"));
+        check("LikeStorage.getMapOfLikesByPrimaryKey(film_id)", Scan.INDEXED,
+                () -> likes.getMapOfLikesByPrimaryKey(List.of(1L, 2L), "film_id"));
+    }
+
+    private void check(String name, Scan scan, Runnable call) throws SQLException {
+        captured.clear();
+        call.run();
+        Set<String> seen = new HashSet<>();
+        for (Captured statement : List.copyOf(captured)) {
+            String sql = statement.sql().strip().replaceAll(";\\s*$", "");
+            String keyword = sql.split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+            if (!EXPLAINABLE.contains(keyword) || !seen.add(sql)) {
+                continue;
+            }
+            String plan = explain(sql, statement.parameters());
+            explained++;
+            Set<String> scanned = new TreeSet<>();
+            Matcher matcher = TABLE_SCAN.matcher(plan);
+            while (matcher.find()) {
+                scanned.add(matcher.group(1));
+            }
+            String verdict = scanned.isEmpty() ? "index" : "scan " + scanned;
+            System.out.printf("%-55s %-30s %s%n", name, verdict, sql.lines().map(String::strip)
+                    .filter(line -> !line.isEmpty()).findFirst().orElse(""));
+            if (!scanned.isEmpty() && scan == Scan.INDEXED) {
+                failures.add(String.format("%s: полное сканирование %s%n%s%n", name, scanned, plan));
+            }
+        }
+    }
+
+    private String explain(String sql, List<Setter> parameters) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (Setter setter : parameters) {
+                setter.apply(statement);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+                return plan.toString();
+            }
+        }
+    }
+
+    private static Film newFilm(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Plan check")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new Mpa(1L, null))
+                .genres(new HashSet<>(Set.of(new Genre(1L, null))))
+                .directors(new HashSet<>(Set.of(new Director(1L, null))))
+                .build();
+    }
+
+    private static User newUser(String login) {
+        return User.builder()
+                .email(login + "@plan.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private enum Scan {
+        /**
+         * Запрос должен читать таблицы только по индексам
+         */
+        INDEXED,
+        /**
+         * Метод по назначению читает таблицу целиком
+         */
+        EXPECTED
+    }
+
+    private record Captured(String sql, List<Setter> parameters) {
+    }
+
+    /**
+     * Вызов setXxx(index, value) на PreparedStatement, повторяемый на EXPLAIN
+     */
+    private record Setter(Method method, Object[] args) {
+        void apply(PreparedStatement statement) throws SQLException {
+            try {
+                method.invoke(statement, args);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new SQLException("Не удалось передать параметр " + method.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Источник соединений, запоминающий каждый выполненный запрос с параметрами
+     */
+    private final class CapturingDataSource extends DelegatingDataSource {
+        CapturingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection target = obtainTargetDataSource().getConnection();
+            return proxy(Connection.class, target, (method, args) -> {
+                Object result = method.invoke(target, args);
+                if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String sql) {
+                    return capturingStatement((PreparedStatement) result, sql);
+                }
+                if (method.getName().equals("createStatement")) {
+                    return capturingStatement((Statement) result);
+                }
+                return result;
+            });
+        }
+
+        private PreparedStatement capturingStatement(PreparedStatement target, String sql) {
+            List<Setter> parameters = new ArrayList<>();
+            boolean[] recorded = {false};
+            return proxy(PreparedStatement.class, target, (method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    parameters.add(new Setter(method, args.clone()));
+                } else if ((name.startsWith("execute") || name.equals("addBatch")) && !recorded[0]) {
+                    recorded[0] = true;
+                    captured.add(new Captured(sql, List.copyOf(parameters)));
+                }
+                return method.invoke(target, args);
+            });
+        }
+
+        private Statement capturingStatement(Statement target) {
+            return proxy(Statement.class, target, (method, args) -> {
+                if (method.getName().startsWith("execute") && args != null && args[0] instanceof String sql) {
+                    captured.add(new Captured(sql, List.of()));
+                }
+                return method.invoke(target, args);
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+        Object invoke(Method method, Object[] args) throws Exception;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Invocation invocation) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    try {
+                        return invocation.invoke(method, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }));
+    }
+}
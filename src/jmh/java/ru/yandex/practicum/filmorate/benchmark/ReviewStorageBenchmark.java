@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.entity.Review;
+import ru.yandex.practicum.filmorate.repository.ReviewStorage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReviewStorageBenchmark {
+    private final SplittableRandom random = new SplittableRandom(7);
+    private ReviewStorage reviewStorage;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        reviewStorage = db.bean(ReviewStorage.class);
+    }
+
+    @Benchmark
+    public Optional<Review> getReviewById(SeededDatabase db) {
+        return reviewStorage.getReviewById(1 + random.nextInt(db.reviews));
+    }
+
+    @Benchmark
+    public List<Review> getReviewsByFilmId(SeededDatabase db) {
+        return reviewStorage.getReviewsByFilmId(db.randomFilmId(random), 10);
+    }
+
+    @Benchmark
+    public List<Review> getAllReviews() {
+        return reviewStorage.getAllReviews(10);
+    }
+}
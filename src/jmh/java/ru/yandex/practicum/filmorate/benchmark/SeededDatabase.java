@@ -0,0 +1,190 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityLeaderboard;
+import ru.yandex.practicum.filmorate.repository.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.repository.index.FriendGraph;
+import ru.yandex.practicum.filmorate.repository.index.LikeMatrix;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Контекст приложения поверх встроенной H2, заполненной синтетическими данными.
+ * Масштаб задаётся параметрами JMH, например: -p users=100000 -p films=100000 -p likes=1000000
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+    static final String[] TITLE_WORDS = {"star", "night", "river", "ghost", "city", "dream", "storm", "king"};
+    private static final int GENRES = 6;
+    private static final int MPA = 5;
+    private static final int FRIENDS_PER_USER = 10;
+    private static final int CHUNK = 10_000;
+
+    @Param("10000")
+    public int users;
+
+    @Param("10000")
+    public int films;
+
+    @Param("100000")
+    public int likes;
+
+    @Param("100000")
+    public int events;
+
+    @Param("100")
+    public int directors;
+
+    @Param("100000")
+    public int reviews;
+
+    @Param("200000")
+    public int reviewLikes;
+
+    ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> args = new ArrayList<>(List.of(
+                "--SPRING_DATASOURCE_URL=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--SPRING_DATASOURCE_DRIVERCLASSNAME=org.h2.Driver",
+                "--LOGGING_FILE_PATH=target/jmh-filmorate.log",
+                "--logging.level.root=WARN",
+                "--logging.level.ru.yandex.practicum.filmorate=WARN"));
+        args.addAll(extraArguments());
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(webApplicationType())
+                .bannerMode(Banner.Mode.OFF)
+                .run(args.toArray(String[]::new));
+
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(FilmPopularityLeaderboard.class).rebuild();
+        context.getBean(LikeMatrix.class).rebuild();
+        context.getBean(FilmSearchIndex.class).rebuild();
+        context.getBean(FriendGraph.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Бенчмарки, которым нужен HTTP сервер, переопределяют тип приложения и добавляют свои аргументы
+     */
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.NONE;
+    }
+
+    protected List<String> extraArguments() {
+        return List.of();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public long randomUserId(SplittableRandom random) {
+        return 1 + random.nextInt(users);
+    }
+
+    public long randomFilmId(SplittableRandom random) {
+        return 1 + random.nextInt(films);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        SplittableRandom random = new SplittableRandom(42);
+
+        insert(jdbcTemplate, "INSERT INTO users (email, login, username, birthday) VALUES (?, ?, ?, ?)", users,
+                i -> new Object[]{"user" + i + "@bench.ru", "user" + i, "User " + i, LocalDate.of(1970 + i % 40, 1, 1)});
+        insert(jdbcTemplate, "INSERT INTO directors (name) VALUES (?)", directors,
+                i -> new Object[]{"Director " + TITLE_WORDS[i % TITLE_WORDS.length] + " " + i});
+        insert(jdbcTemplate, """
+                        INSERT INTO films (film_name, description, release_date, duration, mpa_id)
+                        VALUES (?, ?, ?, ?, ?)
+                        """, films,
+                i -> new Object[]{"Film " + TITLE_WORDS[i % TITLE_WORDS.length] + " " + i, "Description " + i,
+                        LocalDate.of(1950 + i % 70, 1 + i % 12, 1), 60 + i % 120, 1 + i % MPA});
+        insert(jdbcTemplate, "INSERT INTO films_genres (film_id, genre_id) VALUES (?, ?)", films,
+                i -> new Object[]{i + 1, 1 + i % GENRES});
+        insert(jdbcTemplate, "INSERT INTO films_directors (film_id, director_id) VALUES (?, ?)", films,
+                i -> new Object[]{i + 1, 1 + i % directors});
+
+        // Лайки распределены неравномерно: небольшая часть фильмов собирает большинство лайков
+        int likesPerUser = Math.max(1, likes / users);
+        List<Object[]> batch = new ArrayList<>(CHUNK);
+        for (int user = 1; user <= users; user++) {
+            Set<Long> liked = new HashSet<>();
+            while (liked.size() < Math.min(likesPerUser, films)) {
+                double skew = Math.pow(random.nextDouble(), 3);
+                liked.add(1 + (long) (skew * films));
+            }
+            for (long filmId : liked) {
+                batch.add(new Object[]{user, filmId});
+            }
+            if (batch.size() >= CHUNK) {
+                jdbcTemplate.batchUpdate("INSERT INTO users_films_like (user_id, film_id) VALUES (?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users_films_like (user_id, film_id) VALUES (?, ?)", batch);
+        jdbcTemplate.update("""
+                UPDATE films f
+                SET likes_count = (SELECT COUNT(*) FROM users_films_like l WHERE l.film_id = f.film_id)
+                """);
+
+        insert(jdbcTemplate, "INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)",
+                Math.multiplyExact(users, Math.min(FRIENDS_PER_USER, users - 1)),
+                i -> {
+                    int user = i / FRIENDS_PER_USER;
+                    int friend = (user + 1 + (i % FRIENDS_PER_USER) * 31) % users;
+                    return new Object[]{user + 1, friend == user ? (friend + 1) % users + 1 : friend + 1};
+                }, true);
+        insert(jdbcTemplate, """
+                        INSERT INTO events (user_id, type_id, operation_id, entity_id, event_timestamp)
+                        VALUES (?, ?, ?, ?, ?)
+                        """, events,
+                i -> new Object[]{1 + i % users, i % 3, i % 3, 1 + i % films, 1_700_000_000_000L + i});
+        insert(jdbcTemplate, "INSERT INTO reviews (user_id, film_id, is_positive, content) VALUES (?, ?, ?, ?)",
+                reviews, i -> new Object[]{1 + i % users, 1 + (i * 7L) % films, i % 2 == 0, "Review " + i});
+        if (reviews > 0) {
+            insert(jdbcTemplate, "INSERT INTO reviews_likes (review_id, user_id, liked) VALUES (?, ?, ?)",
+                    reviewLikes, i -> new Object[]{1 + i % reviews, 1 + i / reviews, random.nextInt(3) != 0}, true);
+            jdbcTemplate.update("""
+                    UPDATE reviews r
+                    SET useful = (SELECT COALESCE(SUM(CASE WHEN rl.liked THEN 1 ELSE -1 END), 0)
+                                  FROM reviews_likes rl
+                                  WHERE rl.review_id = r.id)
+                    """);
+        }
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, String sql, int count, Row row) {
+        insert(jdbcTemplate, sql, count, row, false);
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, String sql, int count, Row row, boolean ignoreDuplicates) {
+        String statement = ignoreDuplicates ? sql.replaceFirst("INSERT INTO", "MERGE INTO") : sql;
+        List<Object[]> batch = new ArrayList<>(Math.min(count, CHUNK));
+        for (int i = 0; i < count; i++) {
+            batch.add(row.values(i));
+            if (batch.size() == CHUNK) {
+                jdbcTemplate.batchUpdate(statement, batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate(statement, batch);
+    }
+
+    @FunctionalInterface
+    private interface Row {
+        Object[] values(int i);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.entity.User;
+import ru.yandex.practicum.filmorate.service.UserCrudService;
+import ru.yandex.practicum.filmorate.service.UserFriendsService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserFriendsBenchmark {
+    private static final int CANDIDATES = 100;
+
+    private final SplittableRandom random = new SplittableRandom(7);
+    private UserFriendsService userFriendsService;
+    private UserCrudService userCrudService;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        userFriendsService = db.bean(UserFriendsService.class);
+        userCrudService = db.bean(UserCrudService.class);
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(SeededDatabase db) {
+        return userFriendsService.getCommonFriends(db.randomUserId(random), db.randomUserId(random));
+    }
+
+    @Benchmark
+    public Map<Long, Integer> countCommonFriends(SeededDatabase db) {
+        List<Long> candidates = new ArrayList<>(CANDIDATES);
+        for (int i = 0; i < CANDIDATES; i++) {
+            candidates.add(db.randomUserId(random));
+        }
+        return userFriendsService.countCommonFriends(db.randomUserId(random), candidates);
+    }
+
+    @Benchmark
+    public User getUserById(SeededDatabase db) {
+        return userCrudService.getUserById(db.randomUserId(random));
+    }
+}
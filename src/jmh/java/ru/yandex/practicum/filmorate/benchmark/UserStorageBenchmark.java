@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.entity.User;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+    private UserStorage userStorage;
+    private long insertedUsers;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) {
+        userStorage = db.bean(UserStorage.class);
+    }
+
+    @Benchmark
+    public User saveUser() {
+        long n = ++insertedUsers;
+        return userStorage.saveUser(User.builder()
+                .email("inserted" + n + "@bench.ru")
+                .login("inserted" + n)
+                .name("Inserted " + n)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность и задержки HTTP запросов при высокой конкурентности в режиме платформенных
+ * и виртуальных потоков. Перцентили (p0.99) - в выводе режима SampleTime; число клиентов меняется через -t
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class VirtualThreadsBenchmark {
+    private final SplittableRandom random = new SplittableRandom();
+
+    /**
+     * Проверки фильма и пользователя, MERGE лайка и регистрация события - несколько последовательных обращений к БД
+     */
+    @Benchmark
+    public int addLike(SeededWebApp app) throws IOException, InterruptedException {
+        String path = "/films/" + app.randomFilmId(random) + "/like/" + app.randomUserId(random);
+        return send(app, HttpRequest.newBuilder(app.uri(path)).PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    @Benchmark
+    public int getFilm(SeededWebApp app) throws IOException, InterruptedException {
+        return send(app, HttpRequest.newBuilder(app.uri("/films/" + app.randomFilmId(random))).GET());
+    }
+
+    private static int send(SeededWebApp app, HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = app.client().send(request.build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
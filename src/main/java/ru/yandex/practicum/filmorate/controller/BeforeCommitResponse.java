@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Выполняет действие с заголовками один раз - в момент, когда ответ начинает записываться, - позже заголовки
+ * изменить нельзя. Фильтр вызывает {@link #beforeCommit()} и после обработки запроса: для ответов без тела
+ */
+final class BeforeCommitResponse extends HttpServletResponseWrapper {
+    private final Runnable action;
+    private boolean done;
+
+    BeforeCommitResponse(HttpServletResponse response, Runnable action) {
+        super(response);
+        this.action = action;
+    }
+
+    void beforeCommit() {
+        if (!done && !isCommitted()) {
+            action.run();
+        }
+        done = true;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        beforeCommit();
+        return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        beforeCommit();
+        return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        beforeCommit();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        beforeCommit();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        beforeCommit();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        beforeCommit();
+        super.sendRedirect(location);
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Условный GET по ETag. ETag вычисляется по версии ресурса до чтения данных, поэтому при совпадении
+ * с If-None-Match ответ 304 отдаётся без обращения к сервису и БД. ETag выставляется только на успешный
+ * ответ: ответы с ошибкой (например, 404) не кэшируются клиентом под ETag
+ */
+final class ConditionalResponses {
+    /**
+     * Ответ можно хранить, но перед использованием клиент обязан проверить его по ETag
+     */
+    static final CacheControl REVALIDATE = CacheControl.noCache();
+    /**
+     * Справочники жанров и MPA меняются только вместе с data.sql, т.е. с перезапуском приложения
+     */
+    static final CacheControl REFERENCE_DATA = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
+    private ConditionalResponses() {
+    }
+
+    static <T> ResponseEntity<T> ifNoneMatch(String ifNoneMatch, String eTag, CacheControl cacheControl,
+                                             Supplier<ResponseEntity<T>> response) {
+        if (matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+        ResponseEntity<T> entity = response.get();
+        return ResponseEntity.status(entity.getStatusCode())
+                .headers(entity.getHeaders())
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .body(entity.getBody());
+    }
+
+    /**
+     * Слабое сравнение, как требует RFC 9110 для If-None-Match: префикс W/ не учитывается.
+     * "*" не сравнивается: он совпадает, только если ресурс существует, а существование здесь, до чтения
+     * данных, неизвестно. Такой запрос обрабатывается обычным образом (200 или 404)
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,19 +2,25 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.entity.Director;
 import ru.yandex.practicum.filmorate.entity.Marker;
+import ru.yandex.practicum.filmorate.repository.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.service.DirectorService;
 
-import java.util.List;
+import java.util.Collection;
+
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.DIRECTOR;
 
 @RestController
 @RequestMapping("/directors")
 @RequiredArgsConstructor
 public class DirectorController {
     private final DirectorService directorService;
+    private final ResourceVersions versions;
 
     @PutMapping
     public Director updateDirector(@RequestBody @Validated(Marker.OnUpdate.class) Director director) {
@@ -22,8 +28,11 @@ public class DirectorController {
     }
 
     @GetMapping("/{id}")
-    public Director getDirectorById(@Positive @PathVariable(name = "id") Long directorId) {
-        return directorService.getDirectorById(directorId);
+    public ResponseEntity<Director> getDirectorById(@Positive @PathVariable(name = "id") Long directorId,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                    String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.eTag(DIRECTOR, directorId),
+                ConditionalResponses.REVALIDATE, () -> ResponseEntity.ok(directorService.getDirectorById(directorId)));
     }
 
     @PostMapping
@@ -31,9 +40,21 @@ public class DirectorController {
         return directorService.createDirector(director);
     }
 
+    /**
+     * Без параметров возвращает всех режиссёров. С параметрами after и/или limit - страницу режиссёров
+     * по возрастанию id, курсор следующей страницы передаётся в заголовке {@value CursorPages#NEXT_CURSOR_HEADER}.
+     * ETag - версия всего списка режиссёров, общая для всех страниц
+     */
     @GetMapping
-    public List<Director> getAllDirectors() {
-        return directorService.getAllDirectors();
+    public ResponseEntity<Collection<Director>> getAllDirectors(@RequestParam(required = false) Long after,
+                                                                @RequestParam(required = false) Integer limit,
+                                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                                        required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.eTag(DIRECTOR),
+                ConditionalResponses.REVALIDATE,
+                () -> after == null && limit == null
+                        ? ResponseEntity.ok(directorService.getAllDirectors())
+                        : CursorPages.toResponse(directorService.getDirectorsPage(after, limit)));
     }
 
     @DeleteMapping("/{id}")
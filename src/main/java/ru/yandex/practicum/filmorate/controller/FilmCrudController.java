@@ -3,36 +3,64 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.entity.BulkImportResult;
 import ru.yandex.practicum.filmorate.entity.Film;
 import ru.yandex.practicum.filmorate.entity.Marker;
+import ru.yandex.practicum.filmorate.repository.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
+import ru.yandex.practicum.filmorate.service.ExportService;
 import ru.yandex.practicum.filmorate.service.FilmCrudService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.FILM;
+
 @RestController
 @RequestMapping("/films")
 @RequiredArgsConstructor
 @Validated
 public class FilmCrudController {
     private final FilmCrudService filmService;
+    private final BulkImportService bulkImportService;
+    private final ExportService exportService;
+    private final ResourceVersions versions;
 
+    /**
+     * Без параметров возвращает все фильмы. С параметрами after и/или limit - страницу фильмов по возрастанию id,
+     * курсор следующей страницы передаётся в заголовке {@value CursorPages#NEXT_CURSOR_HEADER}
+     */
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public Collection<Film> getAllFilms() {
-        return filmService.getAll();
+    public ResponseEntity<Collection<Film>> getAllFilms(@RequestParam(required = false) Long after,
+                                                        @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(filmService.getAll());
+        }
+        return CursorPages.toResponse(filmService.getPage(after, limit));
     }
 
+    /**
+     * Ответ с ETag версии фильма; If-None-Match с текущей версией получает 304 без чтения из БД
+     */
     @GetMapping("/{filmId}")
-    @ResponseStatus(HttpStatus.OK)
-    public Film getFilmById(@NotNull
-                            @Positive
-                            @PathVariable
-                            Long filmId) {
-        return filmService.getFilmById(filmId);
+    public ResponseEntity<Film> getFilmById(@NotNull
+                                            @Positive
+                                            @PathVariable
+                                            Long filmId,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                            String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.eTag(FILM, filmId),
+                ConditionalResponses.REVALIDATE,
+                () -> ResponseEntity.ok(filmService.getFilmById(filmId)));
     }
 
     @PostMapping
@@ -43,6 +71,22 @@ public class FilmCrudController {
         return filmService.create(film);
     }
 
+    /**
+     * Выгрузка всех фильмов в формате NDJSON. Ответ пишется потоково по мере чтения из БД
+     */
+    @GetMapping(value = "/export", produces = ExportService.NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ExportService.NDJSON))
+                .body(exportService::exportFilms);
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public BulkImportResult createFilms(InputStream body) throws IOException {
+        return bulkImportService.importFilms(body);
+    }
+
     @PutMapping
     @ResponseStatus(HttpStatus.OK)
     public Film updateFilm(@RequestBody
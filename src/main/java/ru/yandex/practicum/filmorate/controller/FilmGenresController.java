@@ -2,25 +2,36 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.entity.Genre;
+import ru.yandex.practicum.filmorate.repository.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.service.FilmGenreService;
 
 import java.util.Collection;
 
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.GENRE;
+
 @RestController
 @RequestMapping("/genres")
 @RequiredArgsConstructor
 public class FilmGenresController {
     private final FilmGenreService genresService;
+    private final ResourceVersions versions;
 
     @GetMapping
-    public Collection<Genre> getAllGenres() {
-        return genresService.getAllGenres();
+    public ResponseEntity<Collection<Genre>> getAllGenres(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.eTag(GENRE), ConditionalResponses.REFERENCE_DATA,
+                () -> ResponseEntity.ok(genresService.getAllGenres()));
     }
 
     @GetMapping("/{genreId}")
-    public Genre getGenreById(@PathVariable @NotNull Long genreId) {
-        return genresService.getGenreById(genreId);
+    public ResponseEntity<Genre> getGenreById(
+            @PathVariable @NotNull Long genreId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.eTag(GENRE), ConditionalResponses.REFERENCE_DATA,
+                () -> ResponseEntity.ok(genresService.getGenreById(genreId)));
     }
 }
@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Ответы с фильмом или списком фильмов из готового JSON. Для фильмов из FilmCache JSON сериализуется
+ * один раз и сбрасывается вместе с записью кэша, список собирается склейкой готовых фрагментов прямо
+ * в поток ответа. Фильмы не из кэша (например, страницы GET /films) сериализуются Jackson как обычно.
+ * Тело ответа совпадает с ответом стандартного конвертера Jackson: используется тот же ObjectMapper.
+ * Включается filmorate.films.json-cache.enabled; Spring Boot ставит конвертер перед стандартными
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.films.json-cache.enabled", havingValue = "true")
+public class FilmJsonMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    private static final byte[] ARRAY_START = {'['};
+    private static final byte[] ARRAY_SEPARATOR = {','};
+    private static final byte[] ARRAY_END = {']'};
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter streamWriter;
+    private final FilmCache filmCache;
+
+    public FilmJsonMessageConverter(ObjectMapper objectMapper, FilmCache filmCache) {
+        super(MediaType.APPLICATION_JSON);
+        this.objectMapper = objectMapper;
+        this.streamWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.filmCache = filmCache;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Film.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType declared = type == null ? ResolvableType.forClass(clazz) : ResolvableType.forType(type);
+        if (Film.class.isAssignableFrom(declared.toClass())) {
+            return true;
+        }
+        Class<?> element = declared.asCollection().resolveGeneric(0);
+        return element != null && Film.class.isAssignableFrom(element);
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        if (body instanceof Film film) {
+            write(film, out);
+            return;
+        }
+        out.write(ARRAY_START);
+        boolean first = true;
+        for (Object film : (Collection<?>) body) {
+            if (!first) {
+                out.write(ARRAY_SEPARATOR);
+            }
+            write((Film) film, out);
+            first = false;
+        }
+        out.write(ARRAY_END);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Конвертер только записывает фильмы в ответ", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Конвертер только записывает фильмы в ответ", inputMessage);
+    }
+
+    private void write(Film film, OutputStream out) throws IOException {
+        byte[] json;
+        try {
+            json = filmCache.json(film, this::serialize);
+        } catch (UncheckedIOException e) {
+            throw new HttpMessageNotWritableException("Could not write JSON: " + e.getMessage(), e.getCause());
+        }
+        if (json != null) {
+            out.write(json);
+        } else {
+            streamWriter.writeValue(out, film);
+        }
+    }
+
+    private byte[] serialize(Film film) {
+        try {
+            return objectMapper.writeValueAsBytes(film);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -8,6 +8,8 @@ import ru.yandex.practicum.filmorate.entity.Film;
 import ru.yandex.practicum.filmorate.service.FilmLikeService;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/films")
@@ -27,6 +29,18 @@ public class FilmLikeController {
         filmLikesService.removeLikeFromFilm(filmId, userId);
     }
 
+    @GetMapping("/{filmId}/like/{userId}")
+    public boolean hasLike(@PathVariable long filmId,
+                           @PathVariable long userId) {
+        return filmLikesService.hasLike(filmId, userId);
+    }
+
+    @GetMapping("/likes/{userId}")
+    public Map<Long, Boolean> hasLikes(@PathVariable long userId,
+                                       @RequestParam List<Long> filmIds) {
+        return filmLikesService.hasLikes(userId, filmIds);
+    }
+
     @GetMapping("/popular")
     public Collection<Film> getMostLikedFilms(@RequestParam(defaultValue = "10") Integer count,
                                               @RequestParam(required = false) Integer genreId,
@@ -2,28 +2,36 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.entity.Mpa;
+import ru.yandex.practicum.filmorate.repository.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.service.FilmMpaService;
 
 import java.util.Collection;
 
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.MPA;
+
 @RestController
 @RequestMapping("/mpa")
 @RequiredArgsConstructor
 public class FilmMpaController {
     private final FilmMpaService mpaService;
+    private final ResourceVersions versions;
 
     @GetMapping
-    public Collection<Mpa> getAllMpaRatings() {
-        return mpaService.getAllMpaRatings();
+    public ResponseEntity<Collection<Mpa>> getAllMpaRatings(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.eTag(MPA), ConditionalResponses.REFERENCE_DATA,
+                () -> ResponseEntity.ok(mpaService.getAllMpaRatings()));
     }
 
     @GetMapping("/{mpaId}")
-    public Mpa getMpaRatingById(@PathVariable @NotNull Long mpaId) {
-        return mpaService.getMpaById(mpaId);
+    public ResponseEntity<Mpa> getMpaRatingById(
+            @PathVariable @NotNull Long mpaId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.eTag(MPA), ConditionalResponses.REFERENCE_DATA,
+                () -> ResponseEntity.ok(mpaService.getMpaById(mpaId)));
     }
 }
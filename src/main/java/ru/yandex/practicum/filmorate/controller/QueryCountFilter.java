@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.repository.util.JdbcStatementCounter;
+
+import java.io.IOException;
+
+/**
+ * Число SQL запросов, выполненных при обработке HTTP запроса: возвращается в заголовке X-Query-Count
+ * и записывается в гистограмму filmorate.http.jdbc.statements с тегами method, uri и status.
+ * Заголовок выставляется перед записью тела ответа, поэтому учитывает все запросы к БД контроллера.
+ * Для потоковой выгрузки учитываются только запросы, выполненные до начала выгрузки
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryCountFilter extends OncePerRequestFilter {
+    static final String QUERY_COUNT_HEADER = "X-Query-Count";
+
+    private final JdbcStatementCounter statementCounter;
+    private final MeterRegistry registry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        statementCounter.start();
+        BeforeCommitResponse countingResponse = new BeforeCommitResponse(response,
+                () -> response.setHeader(QUERY_COUNT_HEADER, String.valueOf(statementCounter.current())));
+        try {
+            chain.doFilter(request, countingResponse);
+        } finally {
+            countingResponse.beforeCommit();
+            int statements = statementCounter.stop();
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("filmorate.http.jdbc.statements")
+                    .description("Число SQL запросов на HTTP запрос")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                    .tag("status", String.valueOf(response.getStatus()))
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(1000.0)
+                    .register(registry)
+                    .record(statements);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+import ru.yandex.practicum.filmorate.repository.util.ReadReplicaRouting;
+
+import java.io.IOException;
+
+/**
+ * Read-your-writes при чтении с реплики. Если запрос что-то записал в БД, ответ получает cookie со временем
+ * записи; следующие запросы клиента с этой cookie читают с основной БД, пока реплика не получит данные новее
+ * этой записи. Срок жизни cookie - допустимое отставание реплики
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.db.replica.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String LAST_WRITE_COOKIE = "filmorate_last_write";
+
+    private final ReadReplicaRouting routing;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        routing.openSession(lastWrite(request));
+        BeforeCommitResponse stickyResponse = new BeforeCommitResponse(response, () -> {
+            if (routing.sessionWrote()) {
+                response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie
+                        .from(LAST_WRITE_COOKIE, String.valueOf(System.currentTimeMillis()))
+                        .maxAge(routing.stickiness())
+                        .path("/")
+                        .httpOnly(true)
+                        .build()
+                        .toString());
+            }
+        });
+        try {
+            chain.doFilter(request, stickyResponse);
+        } finally {
+            stickyResponse.beforeCommit();
+            routing.closeSession();
+        }
+    }
+
+    private static long lastWrite(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, LAST_WRITE_COOKIE);
+        if (cookie == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
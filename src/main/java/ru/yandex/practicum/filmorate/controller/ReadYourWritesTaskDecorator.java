@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.repository.util.ReadReplicaRouting;
+
+/**
+ * Передаёт сессию read-your-writes в задачи applicationTaskExecutor. На нём Spring MVC выполняет
+ * асинхронную часть запросов, например StreamingResponseBody выгрузок /films/export и /users/export:
+ * без сессии клиент, только что записавший данные, мог бы прочитать их с отстающей реплики
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.db.replica.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReadYourWritesTaskDecorator implements TaskDecorator {
+    private final ReadReplicaRouting routing;
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return routing.inCurrentSession(runnable);
+    }
+}
@@ -4,12 +4,20 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.entity.BulkImportResult;
 import ru.yandex.practicum.filmorate.entity.Marker;
 import ru.yandex.practicum.filmorate.entity.User;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
+import ru.yandex.practicum.filmorate.service.ExportService;
 import ru.yandex.practicum.filmorate.service.UserCrudService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 
 @RestController
@@ -18,11 +26,20 @@ import java.util.Collection;
 @Validated
 public class UserCrudController {
     private final UserCrudService userService;
+    private final BulkImportService bulkImportService;
+    private final ExportService exportService;
 
-    @ResponseStatus(HttpStatus.OK)
+    /**
+     * Без параметров возвращает всех пользователей. С параметрами after и/или limit - страницу пользователей
+     * по возрастанию id, курсор следующей страницы передаётся в заголовке {@value CursorPages#NEXT_CURSOR_HEADER}
+     */
     @GetMapping
-    public Collection<User> getAllUsers() {
-        return userService.getAll();
+    public ResponseEntity<Collection<User>> getAllUsers(@RequestParam(required = false) Long after,
+                                                        @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.getAll());
+        }
+        return CursorPages.toResponse(userService.getPage(after, limit));
     }
 
     @ResponseStatus(HttpStatus.CREATED)
@@ -33,6 +50,22 @@ public class UserCrudController {
         return userService.createUser(user);
     }
 
+    /**
+     * Выгрузка всех пользователей в формате NDJSON. Ответ пишется потоково по мере чтения из БД
+     */
+    @GetMapping(value = "/export", produces = ExportService.NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ExportService.NDJSON))
+                .body(exportService::exportUsers);
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public BulkImportResult createUsers(InputStream body) throws IOException {
+        return bulkImportService.importUsers(body);
+    }
+
     @ResponseStatus(HttpStatus.OK)
     @PutMapping
     public User updateUser(@RequestBody
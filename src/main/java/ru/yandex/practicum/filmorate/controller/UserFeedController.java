@@ -1,23 +1,39 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.entity.Event;
+import ru.yandex.practicum.filmorate.repository.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.service.EventService;
 
-import java.util.List;
+import java.util.Collection;
+
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.FEED;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/users")
 public class UserFeedController {
     private final EventService eventService;
+    private final ResourceVersions versions;
 
+    /**
+     * Без параметров возвращает всю ленту. С параметрами before и/или limit - limit самых новых событий
+     * с id меньше before; курсор более старой страницы передаётся в заголовке {@value CursorPages#NEXT_CURSOR_HEADER}.
+     * ETag - версия ленты пользователя, меняется с каждым новым событием
+     */
     @GetMapping("/{userId}/feed")
-    public List<Event> getUserFeed(@PathVariable Long userId) {
-        return eventService.getUserEvents(userId);
+    public ResponseEntity<Collection<Event>> getUserFeed(@PathVariable Long userId,
+                                                         @RequestParam(required = false) Long before,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                                 required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.eTag(FEED, userId),
+                ConditionalResponses.REVALIDATE,
+                () -> before == null && limit == null
+                        ? ResponseEntity.ok(eventService.getUserEvents(userId))
+                        : CursorPages.toResponse(eventService.getUserEventsPage(userId, before, limit)));
     }
 }
@@ -7,6 +7,7 @@ import ru.yandex.practicum.filmorate.entity.User;
 import ru.yandex.practicum.filmorate.service.UserFriendsService;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
@@ -33,6 +34,16 @@ public class UserFriendsController {
         return userFriendsService.getUserFriends(userId);
     }
 
+    /**
+     * Число общих друзей пользователя с каждым из пользователей ids, например /users/1/friends/common?ids=2,3,4
+     */
+    @GetMapping("/common")
+    public Map<Long, Integer> countCommonFriends(
+            @PathVariable(name = "id") @NotNull Long userId,
+            @RequestParam(name = "ids") List<Long> candidateIds) {
+        return userFriendsService.countCommonFriends(userId, candidateIds);
+    }
+
     @GetMapping("/common/{friendId}")
     public List<User> getCommonFriends(
             @PathVariable(name = "id") @NotNull Long userId,
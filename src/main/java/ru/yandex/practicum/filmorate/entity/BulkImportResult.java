@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.entity;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Сводка массового импорта. error заполняется, если разбор входного массива был прерван:
+ * элементы, сохранённые до этого момента, остаются в БД и перечислены в items
+ */
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BulkImportResult {
+    int total;
+    int created;
+    int failed;
+    String error;
+    List<BulkItemResult> items;
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.entity;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Результат импорта одного элемента массового запроса. index - позиция элемента во входном массиве
+ */
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BulkItemResult {
+    int index;
+    Status status;
+    Long id;
+    List<String> errors;
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    public static BulkItemResult created(int index, long id) {
+        return BulkItemResult.builder()
+                .index(index)
+                .status(Status.CREATED)
+                .id(id)
+                .errors(List.of())
+                .build();
+    }
+
+    public static BulkItemResult failed(int index, List<String> errors) {
+        return BulkItemResult.builder()
+                .index(index)
+                .status(Status.FAILED)
+                .errors(errors)
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.entity;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Страница списка, упорядоченного по id. nextCursor - id последнего элемента страницы, который передаётся
+ * в параметре after для получения следующей страницы; null, если страница последняя
+ */
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CursorPage<T> {
+    List<T> items;
+    Long nextCursor;
+
+    /**
+     * Собирает страницу из выборки, запрошенной с одним лишним элементом (LIMIT limit + 1):
+     * его наличие означает, что следующая страница существует
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, ToLongFunction<T> idGetter) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(items, idGetter.applyAsLong(items.get(limit - 1)));
+    }
+}
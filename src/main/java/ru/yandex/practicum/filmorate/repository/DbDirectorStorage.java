@@ -4,21 +4,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.entity.Director;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
 import ru.yandex.practicum.filmorate.repository.mapper.DirectorRowMapper;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.sql.PreparedStatement;
+import java.util.*;
 
 @RequiredArgsConstructor
 @Repository
 @Slf4j
 public class DbDirectorStorage implements DirectorStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final FilmCache filmCache;
 
     @Override
     public Optional<Director> getDirectorById(long directorId) {
@@ -39,17 +40,49 @@ public class DbDirectorStorage implements DirectorStorage {
         }
     }
 
+    @Override
+    public boolean existsById(long directorId) {
+        final String EXISTS_DIRECTOR_BY_ID_QUERY = """
+                SELECT EXISTS (SELECT 1 FROM directors WHERE id = ?)
+                """;
+        log.trace("Проверка существования режиссёра с ID: {}", directorId);
+
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_DIRECTOR_BY_ID_QUERY, Boolean.class, directorId));
+    }
+
+    @Override
+    public boolean existsAllById(Collection<Long> directorIds) {
+        Set<Long> uniqueIds = new HashSet<>(directorIds);
+        if (uniqueIds.isEmpty()) {
+            return true;
+        }
+        final String COUNT_DIRECTORS_BY_IDS_QUERY = """
+                SELECT COUNT(*)
+                FROM UNNEST(?) AS ids(id)
+                JOIN directors ON directors.id = ids.id
+                """;
+        log.trace("Проверка существования режиссёров с ID: {}", uniqueIds);
+
+        Integer foundCount = jdbcTemplate.queryForObject(COUNT_DIRECTORS_BY_IDS_QUERY, Integer.class,
+                (Object) uniqueIds.toArray(new Long[0]));
+        return foundCount != null && foundCount == uniqueIds.size();
+    }
+
     @Override
     public Director saveDirector(Director director) {
+        final String INSERT_DIRECTOR_QUERY = """
+                INSERT INTO directors (name)
+                VALUES (?)
+                """;
         log.info("Начало сохранения режиссера '{}' в БД", director.getName());
 
-        SimpleJdbcInsert insertActor = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("directors")
-                .usingGeneratedKeyColumns("id");
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("name", director.getName());
-
-        long directorId = insertActor.executeAndReturnKey(parameters).longValue();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_DIRECTOR_QUERY, new String[]{"id"});
+            ps.setString(1, director.getName());
+            return ps;
+        }, keyHolder);
+        long directorId = Objects.requireNonNull(keyHolder.getKey()).longValue();
 
         Director savedDirector = director.toBuilder()
                 .id(directorId)
@@ -73,6 +106,22 @@ public class DbDirectorStorage implements DirectorStorage {
         return directors;
     }
 
+    @Override
+    public List<Director> getDirectorsPage(long afterId, int limit) {
+        final String GET_DIRECTORS_PAGE_QUERY = """
+                SELECT *
+                FROM directors
+                WHERE id > ?
+                ORDER BY id ASC
+                LIMIT ?
+                """;
+        log.debug("Начало получения страницы режиссеров после id = {}, limit = {}", afterId, limit);
+
+        List<Director> directors = jdbcTemplate.query(GET_DIRECTORS_PAGE_QUERY, new DirectorRowMapper(), afterId, limit);
+        log.debug("Получено {} режиссеров из БД", directors.size());
+        return directors;
+    }
+
     @Override
     public void removeDirector(long directorId) {
         final String DELETE_FROM_DIRECTORS_QUERY = """
@@ -83,6 +132,8 @@ public class DbDirectorStorage implements DirectorStorage {
         log.debug("Начало выполнения удаления режиссёра с id = {} из БД", directorId);
 
         int rowsDeleted = jdbcTemplate.update(DELETE_FROM_DIRECTORS_QUERY, directorId);
+        // Режиссёр входит в закэшированные фильмы
+        filmCache.invalidateAll();
 
         log.info("Режиссёр с id '{}' {}. Операция завершена", directorId, rowsDeleted > 0 ? "удален" : "не был найден");
     }
@@ -97,6 +148,7 @@ public class DbDirectorStorage implements DirectorStorage {
         log.debug("Начало выполнения обновления режиссёра с id = {} в БД", director.getId());
 
         jdbcTemplate.update(UPDATE_DIRECTOR_QUERY, director.getName(), director.getId());
+        filmCache.invalidateAll();
 
         log.debug("Информация о режиссёре с id = {} была успешно обновлена", director.getId());
         return director;
@@ -21,6 +21,7 @@ public class DbEventStorage implements EventStorage {
             SELECT *
             FROM events
             WHERE user_id = ?
+            ORDER BY id
             """;
         log.debug("(Repo) Выполнение запроса для получения всех событий, связанных с пользователем '{}'", userId);
 
@@ -37,4 +38,25 @@ public class DbEventStorage implements EventStorage {
 
         return foundEvents;
     }
+
+    @Override
+    public List<Event> getUserEventsBefore(long userId, long beforeId, int limit) {
+        final String GET_EVENTS_PAGE_BY_USER_ID_QUERY = """
+            SELECT *
+            FROM events
+            WHERE user_id = ? AND id < ?
+            ORDER BY user_id DESC, id DESC
+            LIMIT ?
+            """;
+        log.debug("(Repo) Получение страницы событий пользователя '{}' до события {}, limit = {}",
+                userId, beforeId, limit);
+
+        List<Event> foundEvents = jdbcTemplate.query(
+                GET_EVENTS_PAGE_BY_USER_ID_QUERY,
+                new EventRowMapper(),
+                userId, beforeId, limit);
+
+        log.debug("(Repo) У пользователя '{}' получено '{}' событий", userId, foundEvents.size());
+        return foundEvents;
+    }
 }
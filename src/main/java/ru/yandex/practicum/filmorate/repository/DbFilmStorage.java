@@ -1,56 +1,109 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.entity.Director;
 import ru.yandex.practicum.filmorate.entity.Film;
 import ru.yandex.practicum.filmorate.entity.Genre;
 import ru.yandex.practicum.filmorate.entity.Mpa;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
+import ru.yandex.practicum.filmorate.repository.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.repository.mapper.*;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @RequiredArgsConstructor
 @Repository
 @Slf4j
 public class DbFilmStorage implements FilmStorage {
+    private static final String INSERT_FILM_QUERY = """
+            INSERT INTO films (film_name, description, release_date, duration, mpa_id)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+    private static final FilmLink FILMS_GENRES_LINK = new FilmLink("films_genres", "genre_id");
+    private static final FilmLink FILMS_DIRECTORS_LINK = new FilmLink("films_directors", "director_id");
+
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+    private final FilmCache filmCache;
 
     @Override
     public Optional<Film> getFilmById(long filmId) {
-        final String GET_FILMS_BY_ID_QUERY = """
-                SELECT f.*, m.mpa_name
+        Optional<Film> cachedFilm = filmCache.get(filmId);
+        if (cachedFilm.isPresent()) {
+            log.trace("(Repo) Фильм с ID {} получен из кэша", filmId);
+            return cachedFilm;
+        }
+        final String GET_FILM_WITH_LINKS_BY_ID_QUERY = """
+                SELECT f.*, m.mpa_name,
+                       g.genre_id, g.name AS genre_name,
+                       d.id AS director_id, d.name AS director_name
                 FROM films f
-                JOIN mpa m ON m.mpa_id = f.mpa_id
-                WHERE film_id = ?
+                LEFT JOIN mpa m ON m.mpa_id = f.mpa_id
+                LEFT JOIN films_genres fg ON fg.film_id = f.film_id
+                LEFT JOIN genres g ON g.genre_id = fg.genre_id
+                LEFT JOIN films_directors fd ON fd.film_id = f.film_id
+                LEFT JOIN directors d ON d.id = fd.director_id
+                WHERE f.film_id = ?
+                ORDER BY g.genre_id ASC, d.id ASC
                 """;
         log.debug("(Repo) Выполнение запроса для получения фильма с ID: {}", filmId);
 
-        try {
-            Film film = jdbcTemplate.queryForObject(
-                    GET_FILMS_BY_ID_QUERY,
-                    new FilmRowMapper(),
-                    filmId);
-
-            Set<Genre> foundFilmGenres = getFilmGenres(filmId);
-            Set<Director> foundFilmDirectors = getFilmDirectors(filmId);
-
-            Film foundFilmWithGenres = film.toBuilder()
-                    .genres(foundFilmGenres)
-                    .directors(foundFilmDirectors)
-                    .build();
-
-            log.debug("(Repo) Фильм с ID {} найден: {}", filmId, foundFilmWithGenres);
-            return Optional.ofNullable(foundFilmWithGenres);
-        } catch (EmptyResultDataAccessException e) {
+        long cacheGeneration = filmCache.generation();
+        List<Film> films = jdbcTemplate.query(GET_FILM_WITH_LINKS_BY_ID_QUERY, new FilmWithLinksRowMapper(), filmId);
+        if (films == null || films.isEmpty()) {
             log.debug("(Repo) Фильм с ID {} не найден.", filmId);
             return Optional.empty();
         }
+
+        Film foundFilm = filmCache.put(films, cacheGeneration).getFirst();
+        log.debug("(Repo) Фильм с ID {} найден: {}", filmId, foundFilm);
+        return Optional.of(foundFilm);
+    }
+
+    @Override
+    public boolean existsById(long filmId) {
+        final String EXISTS_FILM_BY_ID_QUERY = """
+                SELECT EXISTS (SELECT 1 FROM films WHERE film_id = ?)
+                """;
+        log.trace("(Repo) Проверка существования фильма с ID: {}", filmId);
+        if (filmCache.contains(filmId)) {
+            return true;
+        }
+
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_FILM_BY_ID_QUERY, Boolean.class, filmId));
+    }
+
+    @Override
+    public boolean existsAllById(Collection<Long> filmIds) {
+        Set<Long> uniqueIds = new HashSet<>(filmIds);
+        if (uniqueIds.isEmpty()) {
+            return true;
+        }
+        final String COUNT_FILMS_BY_IDS_QUERY = """
+                SELECT COUNT(*)
+                FROM UNNEST(?) AS ids(id)
+                JOIN films ON films.film_id = ids.id
+                """;
+        log.trace("(Repo) Проверка существования фильмов с ID: {}", uniqueIds);
+
+        Integer foundCount = jdbcTemplate.queryForObject(COUNT_FILMS_BY_IDS_QUERY, Integer.class,
+                (Object) uniqueIds.toArray(new Long[0]));
+        return foundCount != null && foundCount == uniqueIds.size();
     }
 
     @Override
@@ -63,6 +116,7 @@ public class DbFilmStorage implements FilmStorage {
                 """;
         boolean isDeleted = jdbcTemplate.update(REMOVE_FILM_BY_ID, filmId) != 0;
         if (isDeleted) {
+            filmCache.invalidate(filmId);
             log.debug("(Repo) Фильм с id = {} был успешно удалён", filmId);
         } else {
             log.debug("(Repo) Фильм с id = {} не был удалён/Не найден", filmId);
@@ -71,6 +125,7 @@ public class DbFilmStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Collection<Film> getAllFilms() {
         final String GET_ALL_FILMS_QUERY = """
                 SELECT f.*, m.mpa_name
@@ -91,331 +146,365 @@ public class DbFilmStorage implements FilmStorage {
     }
 
     @Override
-    public Film saveFilm(Film film) {
-        log.debug("(Repo) Сохранение фильма: {}", film.getName());
-
-        SimpleJdbcInsert insertActor = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("film_id");
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("film_name", film.getName());
-        parameters.put("description", film.getDescription());
-        parameters.put("release_date", film.getReleaseDate());
-        parameters.put("duration", film.getDuration());
-        parameters.put("mpa_id", film.getMpa() == null ? null : film.getMpa().getId());
-
-        long filmId = insertActor.executeAndReturnKey(parameters).longValue();
-        film = film.toBuilder().id(filmId).build();
-
-        log.debug("(Repo) Фильм с id = '{}' успешно сохранён", filmId);
-        return getUpdatedFilm(film);
-    }
-
-    @Override
-    public Film updateFilm(Film film) {
-        final String UPDATE_FILM_QUERY = """
-                UPDATE films
-                SET film_name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ?
-                WHERE film_id = ?
-                """;
-        log.debug("(Repo) Обновление фильма с ID: {}", film.getId());
-
-        jdbcTemplate.update(UPDATE_FILM_QUERY,
-                film.getName(),
-                film.getDescription(),
-                java.sql.Date.valueOf(film.getReleaseDate()),
-                film.getDuration(),
-                film.getMpa() == null ? null : film.getMpa().getId(),
-                film.getId());
-
-        updateFilmGenres(film.getId(), film.getGenres());
-        updateFilmDirectors(film.getId(), film.getDirectors());
-
-        log.debug("(Repo) Фильма с ID: {} был успешно обновлён", film.getId());
-        return getUpdatedFilm(film);
-    }
-
-    @Override
-    public Collection<Film> getFilmsByQuery(String title, String director) {
-        final String GET_MOST_LIKED_FILMS_QUERY = """
+    @Transactional(readOnly = true)
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        final String GET_FILMS_PAGE_QUERY = """
                 SELECT f.*, m.mpa_name
-                FROM FILMS f
-                LEFT JOIN mpa m ON f.mpa_id = m.mpa_id
-                LEFT JOIN users_films_like uf ON f.film_id = uf.film_id
-                LEFT JOIN films_directors fd ON fd.film_id  = f.film_id
-                LEFT JOIN directors d ON d.id = fd.director_id
-                WHERE LOWER (d.name) LIKE '%'|| ? ||'%' OR LOWER(f.FILM_NAME) LIKE '%'|| ? ||'%'
-                GROUP BY f.film_id
-                ORDER BY COUNT(uf.user_id) DESC
+                FROM films f
+                JOIN mpa m ON f.mpa_id = m.mpa_id
+                WHERE f.film_id > ?
+                ORDER BY f.film_id
+                LIMIT ?
                 """;
+        log.debug("(Repo) Получение страницы фильмов после id = {}, limit = {}", afterId, limit);
 
-        log.debug("(Repo) Получение самых популярных фильмов с названием/частью названия: {} {}", title, director);
+        List<Film> films = jdbcTemplate.query(GET_FILMS_PAGE_QUERY, new FilmRowMapper(), afterId, limit);
 
-        LinkedHashSet<Film> films = new LinkedHashSet<>(jdbcTemplate.query(GET_MOST_LIKED_FILMS_QUERY, new FilmRowMapper(), director, title));
         assignGenresForFilms(films);
         assignDirectorsForFilms(films);
 
-        log.debug("(Repo) Получено {} популярных фильмов ", films.size());
-
+        log.debug("(Repo) Получено '{}' фильмов.", films.size());
         return films;
     }
 
     @Override
-    public Collection<Film> getMostLikedFilms(int limit) {
-        final String GET_MOST_LIKED_FILMS_QUERY = """
-                SELECT f.*, m.mpa_name, COUNT(uf.user_id) AS likes_count
+    @Transactional(readOnly = true)
+    public void exportFilms(int chunkSize, Consumer<List<Film>> chunkConsumer) {
+        final String EXPORT_FILMS_QUERY = """
+                SELECT f.*, m.mpa_name
                 FROM films f
-                LEFT JOIN mpa m ON f.mpa_id = m.mpa_id
-                LEFT JOIN users_films_like uf ON f.film_id = uf.film_id
-                GROUP BY f.film_id, m.mpa_name
-                ORDER BY likes_count DESC
-                LIMIT ?
+                JOIN mpa m ON f.mpa_id = m.mpa_id
+                ORDER BY f.film_id
                 """;
+        log.debug("(Repo) Начало выгрузки фильмов порциями по {}", chunkSize);
+
+        FilmRowMapper rowMapper = new FilmRowMapper();
+        List<Film> chunk = new ArrayList<>(chunkSize);
+        long[] exported = {0};
+        Consumer<List<Film>> flush = films -> {
+            assignGenresForFilms(films);
+            assignDirectorsForFilms(films);
+            chunkConsumer.accept(films);
+            exported[0] += films.size();
+            films.clear();
+        };
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXPORT_FILMS_QUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(chunkSize);
+            return ps;
+        }, rs -> {
+            chunk.add(rowMapper.mapRow(rs, rs.getRow()));
+            if (chunk.size() >= chunkSize) {
+                flush.accept(chunk);
+            }
+        });
+        if (!chunk.isEmpty()) {
+            flush.accept(chunk);
+        }
 
-        log.debug("(Repo) Получение самых популярных фильмов с лимитом: {}", limit);
+        log.debug("(Repo) Выгружено '{}' фильмов.", exported[0]);
+    }
 
-        List<Film> films = jdbcTemplate.query(GET_MOST_LIKED_FILMS_QUERY, new FilmRowMapper(), limit);
+    @Override
+    @Transactional
+    public Film saveFilm(Film film) {
+        log.debug("(Repo) Сохранение фильма: {}", film.getName());
 
-        assignGenresForFilms(films);
-        assignDirectorsForFilms(films);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_FILM_QUERY, new String[]{"film_id"});
+            setFilmParameters(ps, film);
+            return ps;
+        }, keyHolder);
+        long filmId = Objects.requireNonNull(keyHolder.getKey()).longValue();
+        Film savedFilm = film.toBuilder().id(filmId).build();
 
-        log.debug("(Repo) Получено {} самых популярных фильмов", films.size());
-        return films;
+        // У нового фильма связей ещё нет, поэтому читать текущие жанры и режиссёров не нужно
+        syncFilmLinks(FILMS_GENRES_LINK, filmId, Collections.emptySet(), getGenreIds(savedFilm));
+        syncFilmLinks(FILMS_DIRECTORS_LINK, filmId, Collections.emptySet(), getDirectorIds(savedFilm));
+
+        log.debug("(Repo) Фильм с id = '{}' успешно сохранён", filmId);
+        return getUpdatedFilm(savedFilm);
     }
 
     @Override
-    public Collection<Film> getMostLikedFilmsByGenreAndYear(int limit, int genreId, int year) {
-        final String GET_MOST_LIKED_FILMS_QUERY = """
-                SELECT f.*, m.mpa_name
-                FROM films f
-                LEFT JOIN mpa m ON f.mpa_id = m.mpa_id
-                LEFT JOIN users_films_like uf ON f.film_id = uf.film_id
-                LEFT JOIN films_genres gf ON gf.film_id = f.film_id
-                WHERE gf.genre_id = ? AND SELECT EXTRACT (YEAR FROM CAST(f.release_date AS date) ) = ?
-                GROUP BY f.film_id, m.mpa_name, gf.genre_id
-                ORDER BY COUNT(uf.user_id) DESC
-                LIMIT ?
-                """;
-        log.debug("(Repo) Получение самых популярных фильмов с лимитом '{}' по жанру id = '{}' и '{}' году", limit, genreId, year);
-
-        LinkedHashSet<Film> films = new LinkedHashSet<>(jdbcTemplate.query(GET_MOST_LIKED_FILMS_QUERY,
-                new FilmRowMapper(), genreId, year, limit));
-
-        assignGenresForFilms(films);
-        assignDirectorsForFilms(films);
+    @Transactional
+    public List<Film> saveFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return Collections.emptyList();
+        }
+        log.debug("(Repo) Пакетное сохранение {} фильмов", films.size());
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_FILM_QUERY, new String[]{"film_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setFilmParameters(ps, films.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != films.size()) {
+            throw new IncorrectResultSizeDataAccessException(films.size(), keys.size());
+        }
+        List<Film> savedFilms = new ArrayList<>(films.size());
+        List<long[]> genreLinks = new ArrayList<>();
+        List<long[]> directorLinks = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            long filmId = ((Number) keys.get(i).values().iterator().next()).longValue();
+            Film savedFilm = films.get(i).toBuilder().id(filmId).build();
+            getGenreIds(savedFilm).forEach(genreId -> genreLinks.add(new long[]{filmId, genreId}));
+            getDirectorIds(savedFilm).forEach(directorId -> directorLinks.add(new long[]{filmId, directorId}));
+            savedFilms.add(savedFilm);
+        }
+        insertFilmLinks(FILMS_GENRES_LINK, genreLinks);
+        insertFilmLinks(FILMS_DIRECTORS_LINK, directorLinks);
 
-        log.debug("(Repo) Получено {} популярных фильмов по жанру и году", films.size());
-        return films;
+        log.debug("(Repo) Пакет из {} фильмов сохранён. Связей с жанрами: {}, с режиссёрами: {}",
+                savedFilms.size(), genreLinks.size(), directorLinks.size());
+        return savedFilms;
     }
 
     @Override
-    public Collection<Film> getMostLikedFilmsByGenreOrYear(Integer limit, Integer genreId, Integer year) {
-        final String GET_MOST_LIKED_FILMS_QUERY = """
-                SELECT f.*, m.mpa_name
-                FROM films f
-                LEFT JOIN mpa m ON f.mpa_id = m.mpa_id
-                LEFT JOIN users_films_like uf ON f.film_id = uf.film_id
-                LEFT JOIN films_genres gf ON gf.film_id = f.film_id
-                WHERE gf.genre_id = ? OR SELECT EXTRACT ( YEAR FROM CAST(f.release_date AS date) ) = ?
-                GROUP BY f.film_id, m.mpa_name, gf.genre_id
-                ORDER BY COUNT(uf.user_id) DESC
-                LIMIT ?
+    @Transactional
+    public Film updateFilm(Film film) {
+        final String UPDATE_FILM_QUERY = """
+                UPDATE films
+                SET film_name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ?
+                WHERE film_id = ?
                 """;
-        log.debug("(Repo) Получение самых популярных фильмов с лимитом {} по жанру '{}', либо году '{}'", limit, genreId, year);
+        log.debug("(Repo) Обновление фильма с ID: {}", film.getId());
 
-        LinkedHashSet<Film> films = new LinkedHashSet<>(jdbcTemplate.query(GET_MOST_LIKED_FILMS_QUERY,
-                new FilmRowMapper(), genreId, year, limit));
+        jdbcTemplate.update(UPDATE_FILM_QUERY,
+                film.getName(),
+                film.getDescription(),
+                java.sql.Date.valueOf(film.getReleaseDate()),
+                film.getDuration(),
+                film.getMpa() == null ? null : film.getMpa().getId(),
+                film.getId());
 
-        assignGenresForFilms(films);
-        assignDirectorsForFilms(films);
+        syncFilmLinks(FILMS_GENRES_LINK, film.getId(),
+                getFilmLinkIds(FILMS_GENRES_LINK, film.getId()), getGenreIds(film));
+        syncFilmLinks(FILMS_DIRECTORS_LINK, film.getId(),
+                getFilmLinkIds(FILMS_DIRECTORS_LINK, film.getId()), getDirectorIds(film));
+        filmCache.invalidate(film.getId());
 
-        log.debug("(Repo) Получено {} популярных фильмов, отсортированных по {}", films.size(),
-                genreId == null ? "году выпуска = " + year : "жанру = " + genreId);
-        return films;
+        log.debug("(Repo) Фильма с ID: {} был успешно обновлён", film.getId());
+        return getUpdatedFilm(film);
     }
 
     @Override
+    @Transactional
     public boolean deleteLikeFromFilm(long filmId, long userId) {
         final String DELETE_LIKE_FROM_FILM_QUERY = """
                 DELETE
                 FROM users_films_like
                 WHERE film_id = ? AND user_id = ?
                 """;
+        final String DECREMENT_LIKES_COUNT_QUERY = """
+                UPDATE films
+                SET likes_count = likes_count - 1
+                WHERE film_id = ?
+                """;
         log.debug("(Repo) Удаление лайка от пользователя с ID {} для фильма с ID {}", userId, filmId);
 
         boolean isDeleted = jdbcTemplate.update(DELETE_LIKE_FROM_FILM_QUERY, filmId, userId) != 0;
+        if (isDeleted) {
+            jdbcTemplate.update(DECREMENT_LIKES_COUNT_QUERY, filmId);
+        }
 
         log.debug("(Repo) Лайк для фильма с ID {} от пользователя с ID {} {}", filmId, userId, isDeleted ? "удален" : "не был найден");
         return isDeleted;
     }
 
     @Override
+    @Transactional
     public boolean saveLikeToFilm(long filmId, long userId) {
-        final String INSERT_LIKE_TO_FILM_QUERY = """
-                MERGE INTO users_films_like (user_id, film_id)
-                VALUES (?, ?)
+        final String INSERT_LIKE_IF_ABSENT_QUERY = """
+                INSERT INTO users_films_like (user_id, film_id)
+                SELECT ?, ?
+                WHERE NOT EXISTS (SELECT 1 FROM users_films_like WHERE user_id = ? AND film_id = ?)
+                """;
+        final String INCREMENT_LIKES_COUNT_QUERY = """
+                UPDATE films
+                SET likes_count = likes_count + 1
+                WHERE film_id = ?
                 """;
         log.debug("(Repo) Добавление лайка пользователя с id = {} к фильму с id = {}", userId, filmId);
 
-        boolean isSaved = jdbcTemplate.update(INSERT_LIKE_TO_FILM_QUERY, userId, filmId) != 0;
+        boolean isInserted;
+        try {
+            isInserted = jdbcTemplate.update(INSERT_LIKE_IF_ABSENT_QUERY, userId, filmId, userId, filmId) != 0;
+        } catch (DuplicateKeyException e) {
+            isInserted = false;
+        }
+        if (isInserted) {
+            jdbcTemplate.update(INCREMENT_LIKES_COUNT_QUERY, filmId);
+        }
 
-        log.debug("(Repo) Лайк к фильму с ID {} от пользователя с ID {} {}", filmId, userId, isSaved ? "добавлен" : "не был добавлен");
-        return isSaved;
+        log.debug("(Repo) Лайк к фильму с ID {} от пользователя с ID {} {}", filmId, userId,
+                isInserted ? "добавлен" : "уже был поставлен ранее");
+        return isInserted;
     }
 
     @Override
     public Collection<Genre> getAllGenres() {
-        final String GET_ALL_GENRES_QUERY = """
-                SELECT *
-                FROM genres
-                ORDER BY genre_id ASC
-                """;
         log.debug("(Repo) Получение всех жанров");
 
-        List<Genre> genres = jdbcTemplate.query(GET_ALL_GENRES_QUERY, new GenreRowMapper());
+        Collection<Genre> genres = referenceDataCache.getAllGenres(this::loadAllGenres);
         log.debug("(Repo) Получено {} жанров: {}", genres.size(), genres);
         return genres;
     }
 
     @Override
     public Optional<Genre> getGenre(long genreId) {
-        final String GET_GENRE_BY_ID_QUERY = """
-                SELECT *
-                FROM genres
-                WHERE genre_id = ?
-                """;
         log.debug("(Repo) Получение жанра с ID: {}", genreId);
 
-        try {
-            Genre genre = jdbcTemplate.queryForObject(
-                    GET_GENRE_BY_ID_QUERY,
-                    new GenreRowMapper(),
-                    genreId
-            );
-            log.debug("(Repo) Жанр с ID {} найден: {}", genreId, genre);
-            return Optional.ofNullable(genre);
-        } catch (EmptyResultDataAccessException e) {
+        Optional<Genre> genre = referenceDataCache.getGenre(genreId, this::loadAllGenres);
+        if (genre.isPresent()) {
+            log.debug("(Repo) Жанр с ID {} найден: {}", genreId, genre.get());
+        } else {
             log.debug("(Repo) Жанр с ID {} не найден.", genreId);
-            return Optional.empty();
         }
+        return genre;
     }
 
     @Override
     public Collection<Mpa> getAllMpa() {
-        final String GET_ALL_MPA_RATINGS_QUERY = """
-                SELECT *
-                FROM mpa
-                ORDER BY mpa_id ASC
-                """;
-
-        log.debug("(Repo) Получение всех MPA рейтингов из базы данных.");
-        Collection<Mpa> mpas = jdbcTemplate.query(GET_ALL_MPA_RATINGS_QUERY, new MpaRowMapper());
+        log.debug("(Repo) Получение всех MPA рейтингов.");
 
+        Collection<Mpa> mpas = referenceDataCache.getAllMpa(this::loadAllMpa);
         log.debug("(Repo) Получены все MPA рейтинги: {}", mpas);
         return mpas;
     }
 
     @Override
     public Optional<Mpa> getMpa(long mpaId) {
-        final String GET_MPA_RATING_BY_ID = """
-            SELECT *
-            FROM mpa
-            WHERE mpa_id = ?
-            """;
-        log.debug("(Repo) Получение MPA рейтинга с id = {} из базы данных.", mpaId);
+        log.debug("(Repo) Получение MPA рейтинга с id = {}.", mpaId);
 
-        try {
-            Mpa foundMpa = jdbcTemplate.queryForObject(GET_MPA_RATING_BY_ID, new MpaRowMapper(), mpaId);
-            log.debug("(Repo) MPA рейтинг с id = {} найден: {}", mpaId, foundMpa);
-            return Optional.ofNullable(foundMpa);
-        } catch (EmptyResultDataAccessException e) {
-            log.debug("(Repo) MPA рейтинг с id = {} не найден в базе данных.", mpaId);
-            return Optional.empty();
+        Optional<Mpa> foundMpa = referenceDataCache.getMpa(mpaId, this::loadAllMpa);
+        if (foundMpa.isPresent()) {
+            log.debug("(Repo) MPA рейтинг с id = {} найден: {}", mpaId, foundMpa.get());
+        } else {
+            log.debug("(Repo) MPA рейтинг с id = {} не найден.", mpaId);
         }
+        return foundMpa;
     }
 
-    private void updateFilmGenres(long filmId, Set<Genre> filmGenres) {
-        log.trace("(Repo) Обновление жанров для фильма с ID {}: {}", filmId, filmGenres);
-
-        final String DELETE_FILM_GENRES_QUERY = """
-            DELETE
-            FROM films_genres
-            WHERE film_id = ?
-            """;
-
-        jdbcTemplate.update(DELETE_FILM_GENRES_QUERY, filmId);
-        log.trace("(Repo) Удалены старые жанры для фильма с ID {}", filmId);
+    /**
+     * Прогревает кэш справочников при старте приложения, чтобы первые запросы не ходили в БД
+     */
+    @PostConstruct
+    private void warmUpReferenceData() {
+        getAllGenres();
+        getAllMpa();
+    }
 
-        if (!filmGenres.isEmpty()) {
-            final String INSERT_FILM_GENRES_QUERY = """
-                INSERT INTO films_genres (film_id, genre_id)
-                VALUES (?, ?)
+    private Collection<Genre> loadAllGenres() {
+        final String GET_ALL_GENRES_QUERY = """
+                SELECT *
+                FROM genres
+                ORDER BY genre_id ASC
                 """;
-            for (Genre genre : filmGenres) {
-                jdbcTemplate.update(INSERT_FILM_GENRES_QUERY, filmId, genre.getId());
-                log.trace("(Repo) В таблицу films_genres добавлена запись с фильмом '{}' и жанром '{}'", filmId, genre.getId());
-            }
-            log.trace("(Repo) Жанры для фильма в таблице films_genres с ID {} успешно обновлены: {}", filmId, filmGenres);
-        }
+        log.debug("(Repo) Загрузка справочника жанров из базы данных.");
+        return jdbcTemplate.query(GET_ALL_GENRES_QUERY, new GenreRowMapper());
     }
 
-    private void updateFilmDirectors(long filmId, Set<Director> filmDirectors) {
-        log.debug("(Repo) Обновление режиссёров для фильма с ID {}: {}", filmId, filmDirectors);
+    private Collection<Mpa> loadAllMpa() {
+        final String GET_ALL_MPA_RATINGS_QUERY = """
+                SELECT *
+                FROM mpa
+                ORDER BY mpa_id ASC
+                """;
+        log.debug("(Repo) Загрузка справочника MPA рейтингов из базы данных.");
+        return jdbcTemplate.query(GET_ALL_MPA_RATINGS_QUERY, new MpaRowMapper());
+    }
 
-        final String DELETE_FILM_DIRECTORS_QUERY = """
-            DELETE
-            FROM films_directors
-            WHERE film_id = ?
-            """;
-        jdbcTemplate.update(DELETE_FILM_DIRECTORS_QUERY, filmId);
-        log.trace("(Repo) Удалены старые режиссёры для фильма с ID {}", filmId);
+    /**
+     * Приводит связи фильма в таблице связей к переданному набору id: удаляет только исчезнувшие связи
+     * и добавляет только новые, каждую группу - одним пакетным запросом
+     */
+    private void syncFilmLinks(FilmLink link, long filmId, Set<Long> currentIds, Set<Long> newIds) {
+        List<Long> removedIds = currentIds.stream().filter(id -> !newIds.contains(id)).sorted().toList();
+        List<Long> addedIds = newIds.stream().filter(id -> !currentIds.contains(id)).sorted().toList();
+        if (removedIds.isEmpty() && addedIds.isEmpty()) {
+            log.trace("(Repo) Связи фильма с ID {} в таблице {} не изменились", filmId, link.table());
+            return;
+        }
 
-        if (!filmDirectors.isEmpty()) {
-            final String INSERT_FILM_DIRECTORS_QUERY = """
-                INSERT INTO films_directors (film_id, director_id)
-                VALUES (?, ?)
-                """;
-            for (Director director : filmDirectors) {
-                jdbcTemplate.update(INSERT_FILM_DIRECTORS_QUERY, filmId, director.getId());
-                log.trace("(Repo) В таблицу films_directors добавлена запись с фильмом '{}' и режиссёром '{}'", filmId, director.getId());
-            }
-            log.trace("(Repo) Режиссёры в таблице films_directors для фильма с ID {} успешно обновлены: {}", filmId, filmDirectors);
+        if (!removedIds.isEmpty()) {
+            final String DELETE_FILM_LINK_QUERY = String.format("""
+                    DELETE
+                    FROM %s
+                    WHERE film_id = ? AND %s = ?
+                    """, link.table(), link.column());
+            jdbcTemplate.batchUpdate(DELETE_FILM_LINK_QUERY, removedIds, removedIds.size(),
+                    (ps, id) -> {
+                        ps.setLong(1, filmId);
+                        ps.setLong(2, id);
+                    });
+            log.trace("(Repo) Из таблицы {} для фильма с ID {} удалены связи: {}", link.table(), filmId, removedIds);
+        }
+        if (!addedIds.isEmpty()) {
+            insertFilmLinks(link, addedIds.stream().map(id -> new long[]{filmId, id}).toList());
+            log.trace("(Repo) В таблицу {} для фильма с ID {} добавлены связи: {}", link.table(), filmId, addedIds);
         }
     }
 
-    @Override
-    public List<Film> getCommonFilms(long userId, long friendId) {
-        String sql = """
-                SELECT f.*, mpa.*, COUNT(uf.user_id) AS likes_count
-                FROM films AS f
-                LEFT JOIN mpa ON mpa.mpa_id = f.mpa_id
-                LEFT JOIN users_films_like AS uf ON f.film_id = uf.film_id
-                WHERE f.film_id IN (
-                    SELECT l1.film_id
-                    FROM users_films_like AS l1
-                    JOIN users_films_like AS l2 ON l1.film_id = l2.film_id
-                    WHERE l1.user_id = ? AND l2.user_id = ?
-                )
-                GROUP BY f.film_id
-                ORDER BY likes_count DESC
-            """;
+    /**
+     * Добавляет связи одним пакетным запросом. Каждая связь - пара (id фильма, связанный id)
+     */
+    private void insertFilmLinks(FilmLink link, List<long[]> links) {
+        if (links.isEmpty()) {
+            return;
+        }
+        final String INSERT_FILM_LINK_QUERY = String.format("""
+                INSERT INTO %s (film_id, %s)
+                VALUES (?, ?)
+                """, link.table(), link.column());
+        jdbcTemplate.batchUpdate(INSERT_FILM_LINK_QUERY, links, links.size(),
+                (ps, filmLink) -> {
+                    ps.setLong(1, filmLink[0]);
+                    ps.setLong(2, filmLink[1]);
+                });
+    }
 
-        log.debug("(Repo) Начало выполнения запроса на получение общих фильмов пользователей с id = {} и id = {}",
-                userId, friendId);
+    private Set<Long> getFilmLinkIds(FilmLink link, long filmId) {
+        final String GET_FILM_LINK_IDS_QUERY = String.format("""
+                SELECT %s
+                FROM %s
+                WHERE film_id = ?
+                """, link.column(), link.table());
 
-        List<Film> commonFilms = jdbcTemplate.query(sql, new FilmRowMapper(), userId, friendId);
+        return new HashSet<>(jdbcTemplate.queryForList(GET_FILM_LINK_IDS_QUERY, Long.class, filmId));
+    }
 
-        assignGenresForFilms(commonFilms);
+    private static void setFilmParameters(PreparedStatement ps, Film film) throws SQLException {
+        ps.setString(1, film.getName());
+        ps.setString(2, film.getDescription());
+        ps.setObject(3, film.getReleaseDate());
+        ps.setObject(4, film.getDuration());
+        ps.setObject(5, film.getMpa() == null ? null : film.getMpa().getId());
+    }
 
-        if (commonFilms.isEmpty()) {
-            log.debug("(Repo) Общие фильмы для пользователей с id = {} и id = {} не найдены",
-                    userId, friendId);
-        } else {
-            log.debug("(Repo) Общие фильмы для пользователей с id = {} и id = {} успешно получены. Общие фильмы: {}",
-                    userId, friendId, commonFilms);
-        }
+    private static Set<Long> getGenreIds(Film film) {
+        Set<Long> genreIds = new HashSet<>();
+        film.getGenres().forEach(genre -> genreIds.add(genre.getId()));
+        return genreIds;
+    }
 
-        return commonFilms;
+    private static Set<Long> getDirectorIds(Film film) {
+        Set<Long> directorIds = new HashSet<>();
+        film.getDirectors().forEach(director -> directorIds.add(director.getId()));
+        return directorIds;
     }
 
     @Override
@@ -424,30 +513,49 @@ public class DbFilmStorage implements FilmStorage {
             log.debug("(Repo) Возвращен пустой список");
             return Collections.emptyList();
         }
-        String inSql = String.join(",", Collections.nCopies(filmIds.size(), "?"));
-        final String GET_LIST_OF_FILMS_BY_ID_QUERY = String.format("""
-            SELECT *
-            FROM films
-            LEFT JOIN mpa ON mpa.mpa_id = films.mpa_id
-            WHERE films.film_id IN (%s)
-            """, inSql);
-        log.debug("(Repo) Список фильмов получен");
-        List<Film> extractingFilms = jdbcTemplate.query(GET_LIST_OF_FILMS_BY_ID_QUERY, new FilmRowMapper(), filmIds.toArray());
-        log.debug("(Repo) Фильмы: {}", extractingFilms);
-        assignGenresForFilms(extractingFilms);
-        assignDirectorsForFilms(extractingFilms);
-        return extractingFilms;
+        Map<Long, Film> foundFilms = new HashMap<>(filmCache.getAll(filmIds));
+        List<Long> missingIds = filmIds.stream()
+                .filter(filmId -> !foundFilms.containsKey(filmId))
+                .distinct()
+                .toList();
+        log.debug("(Repo) Фильмов из кэша: {}, загружается из БД: {}", foundFilms.size(), missingIds.size());
+
+        if (!missingIds.isEmpty()) {
+            final String GET_LIST_OF_FILMS_BY_ID_QUERY = """
+                SELECT films.*, mpa.*
+                FROM (SELECT DISTINCT id FROM UNNEST(?) AS ids(id)) ids
+                JOIN films ON films.film_id = ids.id
+                LEFT JOIN mpa ON mpa.mpa_id = films.mpa_id
+                """;
+            long cacheGeneration = filmCache.generation();
+            List<Film> extractingFilms = jdbcTemplate.query(GET_LIST_OF_FILMS_BY_ID_QUERY, new FilmRowMapper(),
+                    idsParameter(missingIds));
+            log.debug("(Repo) Фильмы: {}", extractingFilms);
+            assignGenresForFilms(extractingFilms);
+            assignDirectorsForFilms(extractingFilms);
+            filmCache.put(extractingFilms, cacheGeneration).forEach(film -> foundFilms.put(film.getId(), film));
+        }
+
+        // Возвращаем фильмы в порядке переданных id: вызывающие передают уже ранжированные списки
+        List<Film> films = new ArrayList<>(foundFilms.size());
+        for (Long filmId : new LinkedHashSet<>(filmIds)) {
+            Film film = foundFilms.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Film> getSortedByReleaseDateFilmsOfDirector(long directorId) {
         final String GET_SORTED_FILMS_BY_DIRECTOR_QUERY = """
             SELECT f.*, m.mpa_name
-            FROM films f
+            FROM (SELECT film_id FROM films_directors WHERE director_id = ?) fd
+            JOIN films f ON f.film_id = fd.film_id
             LEFT JOIN mpa m ON f.mpa_id = m.mpa_id
-            LEFT JOIN films_directors fd ON f.film_id = fd.film_id
-            WHERE fd.director_id = ?
-            ORDER BY EXTRACT(YEAR FROM CAST(f.release_date AS date)) ASC
+            ORDER BY f.release_date ASC, f.film_id ASC
             """;
 
         log.debug("(Repo) Получение фильмов режиссёра с id = '{}' отсортированных по году выпуска", directorId);
@@ -462,16 +570,14 @@ public class DbFilmStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Film> getSortedByLikesFilmsOfDirector(long directorId) {
         final String GET_SORTED_FILMS_BY_DIRECTOR_QUERY = """
-                SELECT f.*, m.mpa_name, COUNT(uf.user_id) AS likes_count
-                FROM films f
-                LEFT JOIN users_films_like uf ON f.film_id = uf.film_id
-                LEFT JOIN films_directors fd ON f.film_id = fd.film_id
+                SELECT f.*, m.mpa_name
+                FROM (SELECT film_id FROM films_directors WHERE director_id = ?) fd
+                JOIN films f ON f.film_id = fd.film_id
                 LEFT JOIN mpa m ON m.mpa_id = f.mpa_id
-                WHERE fd.director_id = ?
-                GROUP BY f.film_id
-                ORDER BY likes_count DESC
+                ORDER BY f.likes_count DESC, f.film_id ASC
                 """;
 
         log.debug("(Repo) Получение фильмов режиссёра с id = '{}' отсортированных по количеству лайков", directorId);
@@ -486,6 +592,14 @@ public class DbFilmStorage implements FilmStorage {
         return films;
     }
 
+    /**
+     * Список id одним параметром-массивом: запрос соединяется с UNNEST(?) и читает фильмы по первичному ключу,
+     * тогда как длинный IN (?, ?, ...) H2 проверяет перебором для каждой строки таблицы
+     */
+    private static Object idsParameter(Collection<Long> ids) {
+        return ids.toArray(new Long[0]);
+    }
+
     /**
      * Метод обновляет данные во множестве фильмов, переданных в качестве аргумента. А именно,
      * устанавливает для каждого фильма из множества соответствующие ему жанры
@@ -503,14 +617,14 @@ public class DbFilmStorage implements FilmStorage {
             return;
         }
 
-        String inSql = String.join(",", Collections.nCopies(filmIds.size(), "?"));
-        String sqlQuery = String.format("""
+        final String GET_GENRES_OF_FILMS_QUERY = """
             SELECT fg.film_id, g.genre_id, g.name
-            FROM films_genres fg
-            JOIN genres g ON fg.genre_id = g.genre_id
-            WHERE fg.film_id IN (%s)""", inSql);
+            FROM (SELECT DISTINCT id FROM UNNEST(?) AS ids(id)) ids
+            JOIN films_genres fg ON fg.film_id = ids.id
+            JOIN genres g ON fg.genre_id = g.genre_id""";
 
-        Map<Long, Set<Genre>> filmGenresMap = jdbcTemplate.query(sqlQuery, filmIds.toArray(), new FilmGenresRowMapper());
+        Map<Long, Set<Genre>> filmGenresMap = jdbcTemplate.query(GET_GENRES_OF_FILMS_QUERY, new FilmGenresRowMapper(),
+                idsParameter(filmIds));
         log.trace("(Repo) Получена хэш-карта, где key = id фильма, value = все id жанров данного фильма. " +
                 "Map.size = {}", filmGenresMap.size());
 
@@ -541,16 +655,15 @@ public class DbFilmStorage implements FilmStorage {
             log.trace("(Repo) Список ID фильмов пуст. Режиссёры не будут назначены переданным фильмам.");
             return;
         }
-        String filmIdsSql = String.join(",", Collections.nCopies(filmIds.size(), "?"));
-        String sqlQuery = String.format("""
+        final String GET_DIRECTORS_OF_FILMS_QUERY = """
                 SELECT fd.film_id, d.id AS director_id, d.name
-                FROM films_directors fd
-                JOIN directors d ON fd.director_id = d.id
-                WHERE fd.film_id IN (%s)""", filmIdsSql);
+                FROM (SELECT DISTINCT id FROM UNNEST(?) AS ids(id)) ids
+                JOIN films_directors fd ON fd.film_id = ids.id
+                JOIN directors d ON fd.director_id = d.id""";
         Map<Long, Set<Director>> filmDirectorsMap = jdbcTemplate.query(
-                sqlQuery,
-                filmIds.toArray(),
-                new FilmDirectorsRowMapper());
+                GET_DIRECTORS_OF_FILMS_QUERY,
+                new FilmDirectorsRowMapper(),
+                idsParameter(filmIds));
         log.trace("(Repo) Получена хэш-карта, где key = id фильма, value = все id режиссёров данного фильма . " +
                 "Map.size = {}", filmDirectorsMap.size());
 
@@ -564,21 +677,6 @@ public class DbFilmStorage implements FilmStorage {
     }
 
 
-    private Set<Genre> getFilmGenres(long filmId) {
-        final String GET_GENRES_BY_FILM_ID_QUERY = """
-                SELECT g.genre_id, g.name
-                FROM genres g
-                INNER JOIN films_genres fg ON g.genre_id = fg.genre_id
-                WHERE fg.film_id = ?
-                ORDER BY g.genre_id ASC""";
-        log.trace("(Repo) Получение жанров для фильма с id = {}", filmId);
-
-        Set<Genre> genres = new LinkedHashSet<>(jdbcTemplate.query(
-                GET_GENRES_BY_FILM_ID_QUERY, new GenreRowMapper(), filmId));
-        log.trace("(Repo) Жанры для фильма с id найдены: filmId = {}, genres = {}", filmId, genres);
-        return genres;
-    }
-
     private Set<Director> getFilmDirectors(long filmId) {
         final String GET_DIRECTORS_BY_FILM_ID_QUERY = """
                 SELECT d.id, d.name
@@ -594,43 +692,28 @@ public class DbFilmStorage implements FilmStorage {
         return directors;
     }
 
-    private Optional<Mpa> getFilmMpa(long filmId) {
-        final String GET_MPA_BY_FILM_ID_QUERY = """
-                SELECT * FROM mpa m
-                INNER JOIN films f ON m.mpa_id = f.mpa_id
-                WHERE f.film_id = ?""";
-        log.trace("(Repo) Выполнение запроса для получения MPA фильма с ID: {}", filmId);
-
-        try {
-            Mpa mpa = jdbcTemplate.queryForObject(
-                    GET_MPA_BY_FILM_ID_QUERY,
-                    new MpaRowMapper(),
-                    filmId);
-            log.trace("(Repo) MPA для фильма с ID {} найдено: {}", filmId, mpa);
-            return Optional.ofNullable(mpa);
-        } catch (EmptyResultDataAccessException e) {
-            log.trace("(Repo) MPA для фильма с ID {} не найдено.", filmId);
-            return Optional.empty();
-        }
-    }
-
+    /**
+     * Дополняет только что записанный фильм названиями MPA рейтинга, жанров и режиссёров.
+     * MPA и жанры берутся из кэша справочников, режиссёры читаются одним запросом
+     */
     private Film getUpdatedFilm(Film film) {
         long filmId = film.getId();
 
         Mpa filmMpa = null;
         if (film.getMpa() != null) {
-            filmMpa = getFilmMpa(filmId).orElse(null);
+            filmMpa = getMpa(film.getMpa().getId()).orElse(null);
             log.trace("(Repo) У фильма с id = {} был обновлён Mpa рейтинг {}", filmId, filmMpa);
         }
         Set<Genre> filmGenres = new HashSet<>();
         if (CollectionUtils.isNotEmpty(film.getGenres())) {
-            updateFilmGenres(filmId, film.getGenres());
-            filmGenres = getFilmGenres(filmId);
+            filmGenres = new LinkedHashSet<>();
+            for (long genreId : getGenreIds(film).stream().sorted().toList()) {
+                getGenre(genreId).ifPresent(filmGenres::add);
+            }
             log.trace("(Repo) Жанры для фильма с id ='{}' успешно обновлены. size = {}", filmId, filmGenres.size());
         }
         Set<Director> filmDirectors = new HashSet<>();
         if (CollectionUtils.isNotEmpty(film.getDirectors())) {
-            updateFilmDirectors(filmId, film.getDirectors());
             filmDirectors = getFilmDirectors(filmId);
             log.trace("(Repo) Режиссёры для фильма с id ='{}' успешно обновлены. size = {}", filmId, filmDirectors.size());
         }
@@ -640,4 +723,11 @@ public class DbFilmStorage implements FilmStorage {
                 .mpa(filmMpa)
                 .build();
     }
+
+    /**
+     * Таблица связей фильма с жанрами или режиссёрами и имя столбца со связанным id
+     */
+    private record FilmLink(String table, String column) {
+    }
+
 }
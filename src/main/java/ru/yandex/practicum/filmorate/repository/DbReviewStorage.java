@@ -5,15 +5,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.entity.Review;
 import ru.yandex.practicum.filmorate.repository.mapper.ReviewRowMapper;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.sql.PreparedStatement;
+import java.util.*;
 
 @Repository
 @RequiredArgsConstructor
@@ -24,14 +24,20 @@ public class DbReviewStorage implements ReviewStorage {
 
     @Override
     public Review saveReview(Review review) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate).withTableName("reviews")
-                .usingGeneratedKeyColumns("id");
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("user_id", review.getUserId());
-        parameters.put("film_id", review.getFilmId());
-        parameters.put("is_positive", review.getIsPositive());
-        parameters.put("content", review.getContent());
-        long newReviewId = simpleJdbcInsert.executeAndReturnKey(parameters).longValue();
+        final String INSERT_REVIEW_QUERY = """
+                INSERT INTO reviews (user_id, film_id, is_positive, content)
+                VALUES (?, ?, ?, ?);
+                """;
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_REVIEW_QUERY, new String[]{"id"});
+            ps.setObject(1, review.getUserId());
+            ps.setObject(2, review.getFilmId());
+            ps.setObject(3, review.getIsPositive());
+            ps.setString(4, review.getContent());
+            return ps;
+        }, keyHolder);
+        long newReviewId = Objects.requireNonNull(keyHolder.getKey()).longValue();
         return review.toBuilder().reviewId(newReviewId).build();
     }
 
@@ -53,15 +59,12 @@ public class DbReviewStorage implements ReviewStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Review> getReviewById(long reviewId) {
         final String GET_REVIEW_BY_ID_QUERY = """
                 SELECT *
-                FROM (SELECT * FROM reviews
-                      WHERE id = ?) AS reviews
-                LEFT JOIN (SELECT review_id, 2 * SUM(liked) - COUNT(user_id) AS useful
-                           FROM reviews_likes
-                           GROUP BY review_id) AS review_use
-                ON reviews.id = review_use.review_id;
+                FROM reviews
+                WHERE id = ?;
                 """;
         try {
             return Optional.ofNullable(jdbcTemplate.queryForObject(GET_REVIEW_BY_ID_QUERY, reviewRowMapper, reviewId));
@@ -71,34 +74,55 @@ public class DbReviewStorage implements ReviewStorage {
     }
 
     @Override
+    public boolean existsById(long reviewId) {
+        final String EXISTS_REVIEW_BY_ID_QUERY = """
+                SELECT EXISTS (SELECT 1 FROM reviews WHERE id = ?);
+                """;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_REVIEW_BY_ID_QUERY, Boolean.class, reviewId));
+    }
+
+    @Override
+    public boolean existsAllById(Collection<Long> reviewIds) {
+        Set<Long> uniqueIds = new HashSet<>(reviewIds);
+        if (uniqueIds.isEmpty()) {
+            return true;
+        }
+        final String COUNT_REVIEWS_BY_IDS_QUERY = """
+                SELECT COUNT(*) FROM UNNEST(?) AS ids(id) JOIN reviews ON reviews.id = ids.id;
+                """;
+        Integer foundCount = jdbcTemplate.queryForObject(COUNT_REVIEWS_BY_IDS_QUERY, Integer.class,
+                (Object) uniqueIds.toArray(new Long[0]));
+        return foundCount != null && foundCount == uniqueIds.size();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Review> getAllReviews(int limit) {
         final String GET_ALL_REVIEWS = """
                 SELECT *
                 FROM reviews
-                LEFT JOIN (SELECT review_id, (2 * SUM(liked)) - COUNT(user_id) AS useful FROM reviews_likes
-                GROUP BY review_id) AS review_use
-                ON review_use.review_id = reviews.id
+                ORDER BY useful DESC, id
                 LIMIT ?;
                 """;
         return jdbcTemplate.query(GET_ALL_REVIEWS, reviewRowMapper, limit);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Review> getReviewsByFilmId(long filmId, int amount) {
+        // film_id в ORDER BY нужен, чтобы H2 читал отзывы из reviews_film_useful_idx без сортировки
         final String GET_REVIEWS_BY_FILM_ID = """
                 SELECT *
-                FROM (SELECT * FROM reviews WHERE film_id = ?) as film_reviews
-                LEFT JOIN (SELECT review_id, (2 * SUM(liked)) - COUNT(user_id) AS useful
-                    FROM reviews_likes
-                    GROUP BY review_id) as review_use
-                ON film_reviews.id = review_use.review_id
-                ORDER BY review_use.useful DESC
+                FROM reviews
+                WHERE film_id = ?
+                ORDER BY film_id, useful DESC, id
                 LIMIT ?;
                 """;
         return jdbcTemplate.query(GET_REVIEWS_BY_FILM_ID, reviewRowMapper, filmId, amount);
     }
 
     @Override
+    @Transactional
     public boolean addLikeDislike(long reviewId, long userId, int likeStatus) {
         final String ADD_REVIEW_LIKE_QUERY = """
                 INSERT INTO reviews_likes (review_id, user_id, liked)
@@ -108,19 +132,76 @@ public class DbReviewStorage implements ReviewStorage {
                 UPDATE reviews_likes SET liked = ?
                 WHERE review_id = ? AND user_id = ?
                 """;
-        try {
-            return jdbcTemplate.update(ADD_REVIEW_LIKE_QUERY, reviewId, userId, likeStatus) != 0;
-        } catch (DataIntegrityViolationException e) {
-            return jdbcTemplate.update(UPDATE_REVIEW_LIKE_QUERY, likeStatus, reviewId, userId) != 0;
+        if (!lockReview(reviewId)) {
+            return false;
         }
+        boolean liked = likeStatus != 0;
+        Optional<Boolean> current = findLike(reviewId, userId);
+
+        int usefulDelta;
+        if (current.isEmpty()) {
+            try {
+                jdbcTemplate.update(ADD_REVIEW_LIKE_QUERY, reviewId, userId, liked);
+            } catch (DataIntegrityViolationException e) {
+                return false;
+            }
+            usefulDelta = liked ? 1 : -1;
+        } else if (current.get() != liked) {
+            jdbcTemplate.update(UPDATE_REVIEW_LIKE_QUERY, liked, reviewId, userId);
+            usefulDelta = liked ? 2 : -2;
+        } else {
+            usefulDelta = 0;
+        }
+        updateUseful(reviewId, usefulDelta);
+        return true;
     }
 
     @Override
+    @Transactional
     public boolean removeLikeDislike(long reviewId, long userId) {
         final String REMOVE_REVIEW_LIKE_QUERY = """
                 DELETE FROM reviews_likes
                 WHERE review_id = ? AND user_id = ?;
                 """;
-        return jdbcTemplate.update(REMOVE_REVIEW_LIKE_QUERY, reviewId, userId) != 0;
+        if (!lockReview(reviewId)) {
+            return false;
+        }
+        Optional<Boolean> current = findLike(reviewId, userId);
+        if (current.isEmpty()) {
+            return false;
+        }
+        jdbcTemplate.update(REMOVE_REVIEW_LIKE_QUERY, reviewId, userId);
+        updateUseful(reviewId, current.get() ? -1 : 1);
+        return true;
+    }
+
+    /**
+     * Блокирует строку отзыва до конца транзакции: оценки одного отзыва меняются по очереди,
+     * поэтому useful всегда совпадает с reviews_likes
+     *
+     * @return false, если отзыва нет
+     */
+    private boolean lockReview(long reviewId) {
+        final String LOCK_REVIEW_QUERY = """
+                SELECT id FROM reviews WHERE id = ? FOR UPDATE
+                """;
+        return !jdbcTemplate.queryForList(LOCK_REVIEW_QUERY, Long.class, reviewId).isEmpty();
+    }
+
+    private Optional<Boolean> findLike(long reviewId, long userId) {
+        final String GET_REVIEW_LIKE_QUERY = """
+                SELECT liked FROM reviews_likes WHERE review_id = ? AND user_id = ?
+                """;
+        return jdbcTemplate.queryForList(GET_REVIEW_LIKE_QUERY, Boolean.class, reviewId, userId).stream().findFirst();
+    }
+
+    private void updateUseful(long reviewId, int usefulDelta) {
+        final String UPDATE_USEFUL_QUERY = """
+                UPDATE reviews SET useful = useful + ? WHERE id = ?
+                """;
+        if (usefulDelta != 0) {
+            jdbcTemplate.update(UPDATE_USEFUL_QUERY, usefulDelta, reviewId);
+        }
+        log.debug("(Repo) Полезность отзыва с id = {} изменена на {}", reviewId, usefulDelta);
     }
 }
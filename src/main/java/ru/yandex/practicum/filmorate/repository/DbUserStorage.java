@@ -5,22 +5,36 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.entity.User;
 import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 @Slf4j
 @FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
 public class DbUserStorage implements UserStorage {
+    private static final String INSERT_USER_QUERY = """
+            INSERT INTO users (email, login, username, birthday)
+            VALUES (?, ?, ?, ?)
+            """;
+
     JdbcTemplate jdbcTemplate;
 
     @Override
+    @Transactional(readOnly = true)
     public Collection<User> getAllUsers() {
         log.debug("(Repo) Начало выполнения запроса на получение всех пользователей.");
 
@@ -39,22 +53,67 @@ public class DbUserStorage implements UserStorage {
     }
 
     @Override
-    public User saveUser(User user) {
-        log.debug("(Repo) Начало сохранения нового пользователя в базу данных. Пользователь: {}", user);
+    @Transactional(readOnly = true)
+    public List<User> getUsersPage(long afterId, int limit) {
+        log.debug("(Repo) Получение страницы пользователей после id = {}, limit = {}", afterId, limit);
+
+        List<User> users = jdbcTemplate.query("""
+                SELECT user_id, email, login, username, birthday
+                FROM users
+                WHERE user_id > ?
+                ORDER BY user_id
+                LIMIT ?
+                """, new UserRowMapper(), afterId, limit);
+
+        log.debug("(Repo) Запрос завершен. Количество найденных пользователей: {}", users.size());
+        return users;
+    }
 
-        SimpleJdbcInsert jdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("user_id");
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUsers(int chunkSize, Consumer<List<User>> chunkConsumer) {
+        log.debug("(Repo) Начало выгрузки пользователей порциями по {}", chunkSize);
+
+        UserRowMapper rowMapper = new UserRowMapper();
+        List<User> chunk = new ArrayList<>(chunkSize);
+        long[] exported = {0};
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                            SELECT user_id, email, login, username, birthday
+                            FROM users
+                            ORDER BY user_id
+                            """,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(chunkSize);
+            return ps;
+        }, rs -> {
+            chunk.add(rowMapper.mapRow(rs, rs.getRow()));
+            if (chunk.size() >= chunkSize) {
+                chunkConsumer.accept(chunk);
+                exported[0] += chunk.size();
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+            exported[0] += chunk.size();
+        }
 
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("email", user.getEmail());
-        parameters.put("login", user.getLogin());
-        parameters.put("username", user.getName());
-        parameters.put("birthday", user.getBirthday());
+        log.debug("(Repo) Выгружено '{}' пользователей.", exported[0]);
+    }
 
-        log.trace("(Repo) Подготовленные параметры для вставки пользователя в базу: {}", parameters);
+    @Override
+    public User saveUser(User user) {
+        log.debug("(Repo) Начало сохранения нового пользователя в базу данных. Пользователь: {}", user);
 
-        long userId = jdbcInsert.executeAndReturnKey(parameters).longValue();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_USER_QUERY, new String[]{"user_id"});
+            setUserParameters(ps, user);
+            return ps;
+        }, keyHolder);
+        long userId = Objects.requireNonNull(keyHolder.getKey()).longValue();
         log.trace("(Repo) Пользователь успешно добавлен. Сгенерированный id: {}", userId);
 
         User savedUser = user.toBuilder().id(userId).build();
@@ -63,6 +122,42 @@ public class DbUserStorage implements UserStorage {
         return savedUser;
     }
 
+    @Override
+    @Transactional
+    public List<User> saveUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return Collections.emptyList();
+        }
+        log.debug("(Repo) Пакетное сохранение {} пользователей", users.size());
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_USER_QUERY, new String[]{"user_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setUserParameters(ps, users.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return users.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != users.size()) {
+            throw new IncorrectResultSizeDataAccessException(users.size(), keys.size());
+        }
+        List<User> savedUsers = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            long userId = ((Number) keys.get(i).values().iterator().next()).longValue();
+            savedUsers.add(users.get(i).toBuilder().id(userId).build());
+        }
+
+        log.debug("(Repo) Пакет из {} пользователей сохранён", savedUsers.size());
+        return savedUsers;
+    }
+
     @Override
     public User updateUser(User user) {
         log.debug("(Repo) Начало обновления данных пользователя с id = {}. Пользователь: {}", user.getId(), user);
@@ -78,6 +173,7 @@ public class DbUserStorage implements UserStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<User> getUserById(long userId) {
         log.debug("(Repo) Выполнение запроса на получение пользователя с id = {}", userId);
 
@@ -86,14 +182,9 @@ public class DbUserStorage implements UserStorage {
                     "SELECT * FROM users WHERE user_id = ?",
                     new UserRowMapper(),
                     userId);
+            log.debug("(Repo) Пользователь с id = {} найден: {}", userId, user);
 
-            List<Long> friendsIds = getUserFriendsIds(userId);
-            User userWithFriends = user.toBuilder()
-                    .friendsIds(friendsIds)
-                    .build();
-            log.debug("(Repo) Пользователь с id = {} найден: {}", userId, userWithFriends);
-
-            return Optional.of(userWithFriends);
+            return Optional.ofNullable(user);
         } catch (EmptyResultDataAccessException e) {
             log.warn("(Repo) Пользователь с id = {} не найден в базе данных.", userId);
             return Optional.empty();
@@ -101,21 +192,53 @@ public class DbUserStorage implements UserStorage {
     }
 
     @Override
-    public List<Long> getUserFriendsIds(long userId) {
-        log.debug("(Repo) Начало выполнения запроса на получение id друзей пользователя с id = {}.", userId);
+    public boolean existsById(long userId) {
+        log.trace("(Repo) Проверка существования пользователя с id = {}", userId);
 
-        List<Long> friendIds = jdbcTemplate.query(
-                "SELECT friend_id FROM friendship WHERE user_id = ?",
-                (rs, rowNum) -> rs.getLong("friend_id"),
-                userId);
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE user_id = ?)",
+                Boolean.class,
+                userId));
+    }
 
-        if (friendIds.isEmpty()) {
-            log.debug("(Repo) Пользователь с id = {} не имеет друзей.", userId);
-        } else {
-            log.debug("(Repo) Id друзей пользователя с id = {} успешно получены. Друзья: {}", userId, friendIds);
+    @Override
+    public boolean existsAllById(Collection<Long> userIds) {
+        Set<Long> uniqueIds = new HashSet<>(userIds);
+        if (uniqueIds.isEmpty()) {
+            return true;
+        }
+        log.trace("(Repo) Проверка существования пользователей с id = {}", uniqueIds);
+
+        Integer foundCount = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*)
+                FROM UNNEST(?) AS ids(id)
+                JOIN users ON users.user_id = ids.id
+                """, Integer.class, (Object) uniqueIds.toArray(new Long[0]));
+        return foundCount != null && foundCount == uniqueIds.size();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> getListOfUsersById(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyList();
         }
+        log.debug("(Repo) Получение {} пользователей по списку id", userIds.size());
 
-        return friendIds;
+        List<User> users = jdbcTemplate.query("""
+                SELECT users.*
+                FROM (SELECT DISTINCT id FROM UNNEST(?) AS ids(id)) ids
+                JOIN users ON users.user_id = ids.id
+                """, new UserRowMapper(), (Object) userIds.toArray(new Long[0]));
+
+        // Возвращаем пользователей в порядке переданных id
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            positions.putIfAbsent(userIds.get(i), i);
+        }
+        users.sort(Comparator.comparing(user -> positions.get(user.getId())));
+        log.debug("(Repo) Получено {} пользователей", users.size());
+        return users;
     }
 
     @Override
@@ -143,6 +266,7 @@ public class DbUserStorage implements UserStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getUserFriends(long userId) {
         log.debug("(Repo) Начало выполнения запроса на получение списка друзей пользователя с id = {}.", userId);
 
@@ -159,29 +283,33 @@ public class DbUserStorage implements UserStorage {
     }
 
     @Override
-    public List<User> getCommonFriends(long userId, long friendId) {
-        log.debug("(Repo) Начало выполнения запроса на получение общих друзей пользователей с id = {} и id = {}.", userId, friendId);
-
-        List<User> commonFriends = jdbcTemplate.query("""
-                SELECT u.*
-                FROM friendship f1
-                JOIN friendship f2 ON f1.friend_id = f2.friend_id
-                JOIN users u ON f1.friend_id = u.user_id
-                WHERE f1.user_id = ? AND f2.user_id = ?
-                """, new UserRowMapper(), userId, friendId);
-
-        log.debug("(Repo) Запрос завершен. Найдено общих друзей: {}.", commonFriends.size());
-
-        return commonFriends;
-    }
-
-    @Override
+    @Transactional
     public void deleteUserById(long userId) {
         log.debug("(Repo) Начало удаления пользователя с id = {}.", userId);
+        // Лайки пользователя и его оценки отзывов удалятся каскадно, поэтому счётчики лайков фильмов
+        // и полезность отзывов пересчитываем заранее
+        jdbcTemplate.update("""
+                UPDATE films
+                SET likes_count = likes_count - 1
+                WHERE film_id IN (SELECT film_id FROM users_films_like WHERE user_id = ?)
+                """, userId);
+        jdbcTemplate.update("""
+                UPDATE reviews r
+                SET useful = useful - (SELECT CASE WHEN rl.liked THEN 1 ELSE -1 END
+                                       FROM reviews_likes rl
+                                       WHERE rl.review_id = r.id AND rl.user_id = ?)
+                WHERE id IN (SELECT review_id FROM reviews_likes WHERE user_id = ?)
+                """, userId, userId);
         jdbcTemplate.update("""
                 DELETE FROM users WHERE user_id = ?
                 """, userId);
         log.debug("(Repo) Пользователь с id = {} успешно удален.", userId);
     }
-}
 
+    private static void setUserParameters(PreparedStatement ps, User user) throws SQLException {
+        ps.setString(1, user.getEmail());
+        ps.setString(2, user.getLogin());
+        ps.setString(3, user.getName());
+        ps.setObject(4, user.getBirthday());
+    }
+}
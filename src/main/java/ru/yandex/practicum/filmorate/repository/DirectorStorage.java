@@ -2,16 +2,29 @@ package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.entity.Director;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface DirectorStorage {
     Optional<Director> getDirectorById(long directorId);
 
+    boolean existsById(long directorId);
+
+    boolean existsAllById(Collection<Long> directorIds);
+
     Director saveDirector(Director director);
 
     List<Director> getAllDirectors();
 
+    /**
+     * Страница режиссёров, упорядоченных по id
+     *
+     * @param afterId id, после которого начинается страница
+     * @param limit   максимальное количество режиссёров на странице
+     */
+    List<Director> getDirectorsPage(long afterId, int limit);
+
     void removeDirector(long directorId);
 
     Director updateDirector(Director director);
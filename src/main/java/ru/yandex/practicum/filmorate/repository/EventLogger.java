@@ -5,4 +5,11 @@ import ru.yandex.practicum.filmorate.entity.EventType;
 
 public interface EventLogger {
     void logEvent(long userId, EventType type, EventOperation operation, long entityId);
+
+    /**
+     * Дожидается, пока все события пользователя, переданные в {@link #logEvent} до этого вызова,
+     * станут видны при чтении из БД
+     */
+    default void awaitWritten(long userId) {
+    }
 }
@@ -5,5 +5,12 @@ import ru.yandex.practicum.filmorate.entity.Event;
 import java.util.List;
 
 public interface EventStorage {
-    List<Event> getUserEvents(long eventId);
+    List<Event> getUserEvents(long userId);
+
+    /**
+     * Страница ленты пользователя: самые новые события с id меньше beforeId
+     *
+     * @return события по убыванию id
+     */
+    List<Event> getUserEventsBefore(long userId, long beforeId, int limit);
 }
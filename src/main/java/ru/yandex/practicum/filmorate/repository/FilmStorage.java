@@ -7,27 +7,53 @@ import ru.yandex.practicum.filmorate.entity.Mpa;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 
 public interface FilmStorage {
     Collection<Film> getAllFilms();
 
+    /**
+     * Страница фильмов, упорядоченных по id
+     *
+     * @param afterId id, после которого начинается страница
+     * @param limit   максимальное количество фильмов на странице
+     */
+    List<Film> getFilmsPage(long afterId, int limit);
+
+    /**
+     * Читает все фильмы по возрастанию id однонаправленным курсором и передаёт их порциями по chunkSize штук.
+     * В памяти одновременно находится только текущая порция
+     *
+     * @param chunkSize     размер порции и fetch size курсора
+     * @param chunkConsumer получатель очередной порции; список переиспользуется и не должен сохраняться
+     */
+    void exportFilms(int chunkSize, Consumer<List<Film>> chunkConsumer);
+
     Optional<Film> getFilmById(long filmId);
 
+    boolean existsById(long filmId);
+
+    boolean existsAllById(Collection<Long> filmIds);
+
     Film saveFilm(Film film);
 
+    /**
+     * Сохраняет фильмы вместе со связями одним пакетом в одной транзакции
+     *
+     * @return сохранённые фильмы с присвоенными id в исходном порядке
+     */
+    List<Film> saveFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
+    /**
+     * @return true, если лайк добавлен, false - если пользователь уже ставил лайк этому фильму
+     */
     boolean saveLikeToFilm(long filmId, long userId);
 
     boolean deleteLikeFromFilm(long filmId, long userId);
 
-    Collection<Film> getMostLikedFilms(int limit);
-
-    Collection<Film> getMostLikedFilmsByGenreAndYear(int limit, int genreId, int year);
-
-    Collection<Film> getMostLikedFilmsByGenreOrYear(Integer limit, Integer genreId, Integer year);
-
     Collection<Mpa> getAllMpa();
 
     Collection<Genre> getAllGenres();
@@ -36,6 +62,9 @@ public interface FilmStorage {
 
     Optional<Mpa> getMpa(long mpaId);
 
+    /**
+     * @return найденные фильмы в порядке следования их id в filmIds
+     */
     List<Film> getListOfFilmsById(List<Long> filmIds);
 
     boolean deleteFilmById(long filmId);
@@ -43,8 +72,4 @@ public interface FilmStorage {
     List<Film> getSortedByReleaseDateFilmsOfDirector(long directorId);
 
     List<Film> getSortedByLikesFilmsOfDirector(long directorId);
-
-    List<Film> getCommonFilms(long userId, long friendId);
-
-    Collection<Film> getFilmsByQuery(String title, String director);
 }
\ No newline at end of file
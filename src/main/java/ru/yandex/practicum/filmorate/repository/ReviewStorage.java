@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.entity.Review;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +15,10 @@ public interface ReviewStorage {
 
     Optional<Review> getReviewById(long reviewId);
 
+    boolean existsById(long reviewId);
+
+    boolean existsAllById(Collection<Long> reviewIds);
+
     List<Review> getAllReviews(int amount);
 
     List<Review> getReviewsByFilmId(long filmId, int amount);
@@ -5,25 +5,58 @@ import ru.yandex.practicum.filmorate.entity.User;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     Collection<User> getAllUsers();
 
+    /**
+     * Страница пользователей, упорядоченных по id
+     *
+     * @param afterId id, после которого начинается страница
+     * @param limit   максимальное количество пользователей на странице
+     */
+    List<User> getUsersPage(long afterId, int limit);
+
+    /**
+     * Читает все пользователей по возрастанию id однонаправленным курсором и передаёт их порциями по chunkSize штук.
+     * В памяти одновременно находится только текущая порция
+     *
+     * @param chunkSize     размер порции и fetch size курсора
+     * @param chunkConsumer получатель очередной порции; список переиспользуется и не должен сохраняться
+     */
+    void exportUsers(int chunkSize, Consumer<List<User>> chunkConsumer);
+
     User saveUser(User user);
 
+    /**
+     * Сохраняет пользователей одним пакетом в одной транзакции
+     *
+     * @return сохранённые пользователи с присвоенными id в исходном порядке
+     */
+    List<User> saveUsers(List<User> users);
+
     User updateUser(User user);
 
+    /**
+     * @return пользователь без списка друзей: друзья хранятся в {@link ru.yandex.practicum.filmorate.repository.index.FriendGraph}
+     */
     Optional<User> getUserById(long userId);
 
+    boolean existsById(long userId);
+
+    boolean existsAllById(Collection<Long> userIds);
+
     void saveFriendToUser(long friendId, long userId);
 
     void removeFriend(long userId, long friendId);
 
     List<User> getUserFriends(long userId);
 
-    List<User> getCommonFriends(long userId, long friendId);
-
-    List<Long> getUserFriendsIds(long userId);
+    /**
+     * @return найденные пользователи в порядке переданных id
+     */
+    List<User> getListOfUsersById(List<Long> userIds);
 
     void deleteUserById(long userId);
 }
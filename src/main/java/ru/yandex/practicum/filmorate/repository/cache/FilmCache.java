@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate.repository.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.entity.Director;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.entity.Genre;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Кэш полностью заполненных фильмов (MPA, жанры, режиссёры) для DbFilmStorage.getFilmById и getListOfFilmsById.
+ * Ограничен по оценке занимаемой памяти (filmorate.films.cache.max-size-mb), вытеснение - W-TinyLFU (Caffeine),
+ * запись живёт не дольше filmorate.films.cache.ttl. Статистика попаданий и вытеснений публикуется метриками
+ * cache.* с тегом cache=films и filmorate.films.cache.hit.ratio.
+ * <p>
+ * Записи сбрасываются после фиксации транзакции, изменившей фильм, его жанры или режиссёров. Чтение из БД
+ * кладёт фильм в кэш и затем сверяет поколение сбросов: если за время чтения был сброс, положенная запись
+ * удаляется, поэтому прочитанный до изменения фильм не остаётся в кэше. Загрузка не выполняется под блокировками
+ * кэша и не закрепляет виртуальный поток за носителем.
+ * <p>
+ * Фильмы в кэше общие для всех вызывающих: жанры и режиссёры хранятся в неизменяемых множествах,
+ * упорядоченных по id. Поэтому JSON закэшированного фильма тоже не меняется и хранится рядом с ним
+ * (см. {@link #json}) - до сброса записи
+ */
+@Component
+@Slf4j
+public class FilmCache {
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    private static final int LINK_OVERHEAD_BYTES = 64;
+
+    private final Cache<Long, CachedFilm> films;
+    private final AtomicLong generation = new AtomicLong();
+
+    public FilmCache(@Value("${filmorate.films.cache.max-size-mb:64}") long maxSizeMb,
+                     @Value("${filmorate.films.cache.ttl:10m}") Duration ttl,
+                     @Value("${filmorate.films.json-cache.enabled:false}") boolean jsonCacheEnabled,
+                     MeterRegistry registry) {
+        // JSON фильма по размеру сопоставим с самим фильмом: при включённом кэше JSON запись весит вдвое больше
+        int weightFactor = jsonCacheEnabled ? 2 : 1;
+        this.films = Caffeine.newBuilder()
+                .maximumWeight(maxSizeMb * 1024 * 1024)
+                .weigher((Long filmId, CachedFilm cached) -> weightFactor * weigh(cached.film))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, films, "films");
+        Gauge.builder("filmorate.films.cache.hit.ratio", films, cache -> cache.stats().hitRate())
+                .description("Доля чтений фильмов, обслуженных из кэша")
+                .register(registry);
+        log.info("(Cache) Кэш фильмов: до {} МБ, время жизни записи {}", maxSizeMb, ttl);
+    }
+
+    public Optional<Film> get(long filmId) {
+        return Optional.ofNullable(films.getIfPresent(filmId)).map(cached -> cached.film);
+    }
+
+    /**
+     * @return найденные в кэше фильмы по id; отсутствующих в кэше id в результате нет
+     */
+    public Map<Long, Film> getAll(Collection<Long> filmIds) {
+        Map<Long, Film> found = new HashMap<>();
+        films.getAllPresent(filmIds).forEach((filmId, cached) -> found.put(filmId, cached.film));
+        return found;
+    }
+
+    /**
+     * JSON фильма, который сейчас лежит в кэше (тот же экземпляр): сериализуется один раз и хранится
+     * до сброса записи
+     *
+     * @return JSON в UTF-8 или null, если фильм не из кэша - например, уже сброшен или прочитан в обход кэша
+     */
+    public byte[] json(Film film, Function<Film, byte[]> serializer) {
+        CachedFilm cached = films.asMap().get(film.getId());
+        if (cached == null || cached.film != film) {
+            return null;
+        }
+        byte[] json = cached.json;
+        if (json == null) {
+            json = serializer.apply(film);
+            cached.json = json;
+        }
+        return json;
+    }
+
+    public boolean contains(long filmId) {
+        return films.asMap().containsKey(filmId);
+    }
+
+    /**
+     * Поколение сбросов. Читается до загрузки фильмов из БД и передаётся в {@link #put}
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Кладёт загруженные из БД фильмы в кэш
+     *
+     * @param loadedGeneration значение {@link #generation()}, прочитанное до загрузки
+     * @return те же фильмы в том виде, в котором они хранятся в кэше
+     */
+    public List<Film> put(Collection<Film> loaded, long loadedGeneration) {
+        List<Film> cached = new ArrayList<>(loaded.size());
+        for (Film film : loaded) {
+            Film canonical = canonical(film);
+            films.put(canonical.getId(), new CachedFilm(canonical));
+            cached.add(canonical);
+        }
+        if (generation.get() != loadedGeneration) {
+            // Во время загрузки фильмы менялись: прочитанное могло устареть
+            cached.forEach(film -> films.invalidate(film.getId()));
+        }
+        return cached;
+    }
+
+    /**
+     * Сбрасывает фильм после фиксации текущей транзакции (или сразу, если транзакции нет)
+     */
+    public void invalidate(long filmId) {
+        afterCompletion(() -> {
+            generation.incrementAndGet();
+            films.invalidate(filmId);
+        });
+    }
+
+    /**
+     * Сбрасывает все фильмы, например при изменении режиссёра, входящего в фильмы
+     */
+    public void invalidateAll() {
+        afterCompletion(() -> {
+            generation.incrementAndGet();
+            films.invalidateAll();
+            log.debug("(Cache) Кэш фильмов сброшен");
+        });
+    }
+
+    private static void afterCompletion(Runnable invalidation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidation.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidation.run();
+            }
+        });
+    }
+
+    private static Film canonical(Film film) {
+        Set<Genre> genres = new LinkedHashSet<>(film.getGenres().stream()
+                .sorted(Comparator.comparing(Genre::getId))
+                .toList());
+        Set<Director> directors = new LinkedHashSet<>(film.getDirectors().stream()
+                .sorted(Comparator.comparing(Director::getId))
+                .toList());
+        return film.toBuilder()
+                .genres(Collections.unmodifiableSet(genres))
+                .directors(Collections.unmodifiableSet(directors))
+                .build();
+    }
+
+    /**
+     * Оценка занимаемой памяти в байтах: строки - по 2 байта на символ, плюс накладные расходы объектов
+     */
+    private static int weigh(Film film) {
+        int weight = ENTRY_OVERHEAD_BYTES + 2 * (length(film.getName()) + length(film.getDescription()));
+        for (Genre genre : film.getGenres()) {
+            weight += LINK_OVERHEAD_BYTES + 2 * length(genre.getName());
+        }
+        for (Director director : film.getDirectors()) {
+            weight += LINK_OVERHEAD_BYTES + 2 * length(director.getName());
+        }
+        return weight;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static final class CachedFilm {
+        private final Film film;
+        // Гонка двух сериализаций безвредна: обе дают одинаковые байты
+        private volatile byte[] json;
+
+        private CachedFilm(Film film) {
+            this.film = film;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.repository.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.entity.Genre;
+import ru.yandex.practicum.filmorate.entity.Mpa;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Кэш справочников жанров и MPA рейтингов. Таблицы genres и mpa заполняются data.sql и почти не меняются,
+ * поэтому держим их целиком в памяти: поиск по id - обращение к массиву по индексу, без боксинга ключей.
+ * Справочник загружается из БД при первом обращении (или после {@link #invalidateGenres()} /
+ * {@link #invalidateMpa()}), все последующие чтения обслуживаются из памяти.
+ * Попадания и промахи публикуются метриками filmorate.reference.cache.hits / misses с тегом cache=genres|mpa
+ */
+@Component
+@Slf4j
+public class ReferenceDataCache {
+    private final LongAdder genreHits = new LongAdder();
+    private final LongAdder genreMisses = new LongAdder();
+    private final LongAdder mpaHits = new LongAdder();
+    private final LongAdder mpaMisses = new LongAdder();
+    // Не synchronized: загрузка справочника обращается к БД и не должна закреплять виртуальный поток за носителем
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private volatile IdIndex<Genre> genres;
+    private volatile IdIndex<Mpa> mpa;
+
+    public ReferenceDataCache(MeterRegistry registry) {
+        registerCounters(registry, "genres", genreHits, genreMisses);
+        registerCounters(registry, "mpa", mpaHits, mpaMisses);
+    }
+
+    public Collection<Genre> getAllGenres(Supplier<Collection<Genre>> loader) {
+        return genres(loader).values;
+    }
+
+    public Optional<Genre> getGenre(long genreId, Supplier<Collection<Genre>> loader) {
+        return genres(loader).get(genreId);
+    }
+
+    public Collection<Mpa> getAllMpa(Supplier<Collection<Mpa>> loader) {
+        return mpa(loader).values;
+    }
+
+    public Optional<Mpa> getMpa(long mpaId, Supplier<Collection<Mpa>> loader) {
+        return mpa(loader).get(mpaId);
+    }
+
+    /**
+     * Сбрасывает закэшированные жанры. Должен вызываться после любой записи в таблицу genres
+     */
+    public void invalidateGenres() {
+        log.debug("(Cache) Справочник жанров сброшен");
+        genres = null;
+    }
+
+    /**
+     * Сбрасывает закэшированные MPA рейтинги. Должен вызываться после любой записи в таблицу mpa
+     */
+    public void invalidateMpa() {
+        log.debug("(Cache) Справочник MPA рейтингов сброшен");
+        mpa = null;
+    }
+
+    private IdIndex<Genre> genres(Supplier<Collection<Genre>> loader) {
+        IdIndex<Genre> index = genres;
+        if (index != null) {
+            genreHits.increment();
+            return index;
+        }
+        loadLock.lock();
+        try {
+            if (genres == null) {
+                genreMisses.increment();
+                genres = IdIndex.of(loader.get(), Genre::getId);
+                log.debug("(Cache) Загружено {} жанров", genres.values.size());
+            } else {
+                genreHits.increment();
+            }
+            return genres;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private IdIndex<Mpa> mpa(Supplier<Collection<Mpa>> loader) {
+        IdIndex<Mpa> index = mpa;
+        if (index != null) {
+            mpaHits.increment();
+            return index;
+        }
+        loadLock.lock();
+        try {
+            if (mpa == null) {
+                mpaMisses.increment();
+                mpa = IdIndex.of(loader.get(), Mpa::getId);
+                log.debug("(Cache) Загружено {} MPA рейтингов", mpa.values.size());
+            } else {
+                mpaHits.increment();
+            }
+            return mpa;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private static void registerCounters(MeterRegistry registry, String cache, LongAdder hits, LongAdder misses) {
+        FunctionCounter.builder("filmorate.reference.cache.hits", hits, LongAdder::sum)
+                .description("Чтения справочника, обслуженные из памяти")
+                .tag("cache", cache)
+                .register(registry);
+        FunctionCounter.builder("filmorate.reference.cache.misses", misses, LongAdder::sum)
+                .description("Загрузки справочника из БД")
+                .tag("cache", cache)
+                .register(registry);
+    }
+
+    /**
+     * Неизменяемый снимок справочника: элементы в исходном порядке и массив, где индекс - id элемента.
+     * Рассчитан на небольшие плотные идентификаторы справочных таблиц
+     */
+    private static final class IdIndex<T> {
+        private final Object[] byId;
+        private final List<T> values;
+
+        private IdIndex(Object[] byId, List<T> values) {
+            this.byId = byId;
+            this.values = values;
+        }
+
+        static <T> IdIndex<T> of(Collection<T> values, ToLongFunction<T> idOf) {
+            long maxId = values.stream().mapToLong(idOf).max().orElse(0);
+            Object[] byId = new Object[Math.toIntExact(maxId + 1)];
+            for (T value : values) {
+                byId[(int) idOf.applyAsLong(value)] = value;
+            }
+            return new IdIndex<>(byId, List.copyOf(values));
+        }
+
+        @SuppressWarnings("unchecked")
+        Optional<T> get(long id) {
+            if (id < 0 || id >= byId.length) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable((T) byId[(int) id]);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.repository.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии ресурсов для ETag ответов. У каждого ресурса есть версии отдельных записей (фильм, режиссёр,
+ * лента пользователя) и версия всего списка. Записи сервисов и журналов событий увеличивают версию
+ * после того, как изменение записано в БД, а контроллеры читают версию до чтения данных. Поэтому ответ
+ * с данными не старше своей версии, и If-None-Match со старой версией никогда не получает 304.
+ * Версии хранятся только в памяти: ETag включает время запуска приложения, чтобы после перезапуска
+ * ни один из выданных ранее ETag не совпал
+ */
+@Component
+public class ResourceVersions {
+    public enum Resource {
+        FILM, DIRECTOR, FEED, GENRE, MPA
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Resource, Map<Long, Long>> entities = new EnumMap<>(Resource.class);
+    private final Map<Resource, AtomicLong> generations = new EnumMap<>(Resource.class);
+    private final Map<Resource, AtomicLong> collections = new EnumMap<>(Resource.class);
+
+    public ResourceVersions() {
+        for (Resource resource : Resource.values()) {
+            entities.put(resource, new ConcurrentHashMap<>());
+            generations.put(resource, new AtomicLong());
+            collections.put(resource, new AtomicLong());
+        }
+    }
+
+    /**
+     * Запись ресурса создана, изменена или удалена: меняются ETag записи и списка
+     */
+    public void bump(Resource resource, long id) {
+        entities.get(resource).put(id, clock.incrementAndGet());
+        collections.get(resource).incrementAndGet();
+    }
+
+    /**
+     * Изменились все записи ресурса сразу (например, переименован режиссёр, входящий в фильмы)
+     */
+    public void bumpAll(Resource resource) {
+        generations.get(resource).incrementAndGet();
+        collections.get(resource).incrementAndGet();
+    }
+
+    /**
+     * @return строгий ETag записи ресурса, в кавычках
+     */
+    public String eTag(Resource resource, long id) {
+        return "\"" + epoch + "-" + resource.ordinal() + "-" + generations.get(resource).get()
+                + "-" + entities.get(resource).getOrDefault(id, 0L) + "\"";
+    }
+
+    /**
+     * @return строгий ETag списка записей ресурса, в кавычках
+     */
+    public String eTag(Resource resource) {
+        return "\"" + epoch + "-" + resource.ordinal() + "-" + collections.get(resource).get() + "\"";
+    }
+}
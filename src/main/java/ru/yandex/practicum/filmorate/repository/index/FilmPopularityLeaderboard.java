@@ -0,0 +1,308 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.entity.Genre;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+/**
+ * Рейтинг популярности фильмов в памяти приложения. Фильмы упорядочены по паре (количество лайков по убыванию,
+ * id фильма по возрастанию) в общем рейтинге, а также в отдельных рейтингах по каждому жанру и году выпуска,
+ * поэтому топ фильмов с фильтрами по жанру и году вычисляется без обращения к БД.
+ * Рейтинг собирается из счётчиков films.likes_count при старте и далее обновляется сервисами при каждом
+ * добавлении/удалении лайка и изменении фильма.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FilmPopularityLeaderboard {
+    private static final Comparator<Entry> BY_POPULARITY = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentMap<Long, FilmStats> films = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> all = new ConcurrentSkipListSet<>(BY_POPULARITY);
+    private final ConcurrentMap<Long, NavigableSet<Entry>> byGenre = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, NavigableSet<Entry>> byYear = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        log.debug("(Leaderboard) Построение рейтинга популярности фильмов");
+
+        films.clear();
+        all.clear();
+        byGenre.clear();
+        byYear.clear();
+        for (Map.Entry<Long, FilmStats> film : loadFilmStats(null).entrySet()) {
+            films.put(film.getKey(), film.getValue());
+            index(film.getKey(), film.getValue());
+        }
+
+        log.info("(Leaderboard) Рейтинг популярности построен. Фильмов: {}", films.size());
+    }
+
+    public void onLikeAdded(long filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void onLikeRemoved(long filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    /**
+     * Добавляет новый фильм в рейтинг или обновляет жанры и год выпуска уже известного фильма,
+     * сохраняя его количество лайков
+     */
+    public void onFilmSaved(Film film) {
+        long[] genreIds = film.getGenres().stream().mapToLong(Genre::getId).sorted().toArray();
+        Integer year = film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+
+        films.compute(film.getId(), (filmId, old) -> {
+            FilmStats updated = new FilmStats(old == null ? 0 : old.likes(), genreIds, year);
+            replace(filmId, old, updated);
+            return updated;
+        });
+    }
+
+    public void onFilmDeleted(long filmId) {
+        films.computeIfPresent(filmId, (id, old) -> {
+            replace(id, old, null);
+            return null;
+        });
+    }
+
+    public List<Long> getTopFilmIds(int limit) {
+        return take(all.iterator(), limit, filmId -> true);
+    }
+
+    public List<Long> getTopFilmIdsByGenreAndYear(int limit, long genreId, int year) {
+        NavigableSet<Entry> genreFilms = byGenre.getOrDefault(genreId, Collections.emptyNavigableSet());
+        NavigableSet<Entry> yearFilms = byYear.getOrDefault(year, Collections.emptyNavigableSet());
+
+        // Обходим меньший из двух рейтингов, проверяя второе условие по данным фильма
+        if (genreFilms.size() <= yearFilms.size()) {
+            return take(genreFilms.iterator(), limit, filmId -> hasYear(filmId, year));
+        }
+        return take(yearFilms.iterator(), limit, filmId -> hasGenre(filmId, genreId));
+    }
+
+    public List<Long> getTopFilmIdsByGenreOrYear(int limit, Long genreId, Integer year) {
+        NavigableSet<Entry> genreFilms = genreId == null ? Collections.emptyNavigableSet()
+                : byGenre.getOrDefault(genreId, Collections.emptyNavigableSet());
+        NavigableSet<Entry> yearFilms = year == null ? Collections.emptyNavigableSet()
+                : byYear.getOrDefault(year, Collections.emptyNavigableSet());
+
+        return take(new MergingIterator(genreFilms.iterator(), yearFilms.iterator()), limit, filmId -> true);
+    }
+
+    /**
+     * Упорядочивает фильмы по популярности: по убыванию количества лайков, при равенстве - по возрастанию id
+     */
+    public List<Long> sortByPopularity(Collection<Long> filmIds) {
+        return filmIds.stream()
+                .map(filmId -> new Entry(getLikes(filmId), filmId))
+                .sorted(BY_POPULARITY)
+                .map(Entry::filmId)
+                .toList();
+    }
+
+    private int getLikes(long filmId) {
+        FilmStats stats = films.get(filmId);
+        return stats == null ? 0 : stats.likes();
+    }
+
+    private void changeLikes(long filmId, int delta) {
+        if (films.computeIfPresent(filmId, (id, old) -> applyLikes(id, old, delta)) != null) {
+            return;
+        }
+        // Фильма нет в рейтинге: читаем его из БД вне compute, чтобы не держать блокировку ConcurrentHashMap
+        // на время запроса. В прочитанном счётчике лайк уже учтён
+        FilmStats loaded = loadFilmStats(filmId).get(filmId);
+        if (loaded == null) {
+            log.warn("(Leaderboard) Фильм с id = {} не найден, рейтинг не изменён", filmId);
+            return;
+        }
+        films.compute(filmId, (id, old) -> {
+            // Пока шёл запрос, фильм мог добавить в рейтинг другой поток - тогда изменяем его данные
+            if (old != null) {
+                return applyLikes(id, old, delta);
+            }
+            replace(id, null, loaded);
+            return loaded;
+        });
+    }
+
+    private FilmStats applyLikes(long filmId, FilmStats old, int delta) {
+        FilmStats updated = old.withLikes(Math.max(0, old.likes() + delta));
+        replace(filmId, old, updated);
+        return updated;
+    }
+
+    /**
+     * Сначала добавляет новые позиции фильма, затем удаляет старые: читатели могут на мгновение увидеть
+     * фильм дважды (дубликаты отбрасываются в {@link #take}), но никогда не потеряют его.
+     * Позиции, которые совпадают у старых и новых данных (те же лайки в том же рейтинге), не удаляются
+     */
+    private void replace(long filmId, FilmStats old, FilmStats updated) {
+        if (updated != null) {
+            index(filmId, updated);
+        }
+        if (old != null && !old.equals(updated)) {
+            unindex(filmId, old, updated);
+        }
+    }
+
+    private void index(long filmId, FilmStats stats) {
+        Entry entry = new Entry(stats.likes(), filmId);
+        all.add(entry);
+        for (long genreId : stats.genreIds()) {
+            byGenre.computeIfAbsent(genreId, k -> new ConcurrentSkipListSet<>(BY_POPULARITY)).add(entry);
+        }
+        if (stats.year() != null) {
+            byYear.computeIfAbsent(stats.year(), k -> new ConcurrentSkipListSet<>(BY_POPULARITY)).add(entry);
+        }
+    }
+
+    private void unindex(long filmId, FilmStats stats, FilmStats kept) {
+        Entry entry = new Entry(stats.likes(), filmId);
+        boolean sameLikes = kept != null && kept.likes() == stats.likes();
+        if (!sameLikes) {
+            all.remove(entry);
+        }
+        for (long genreId : stats.genreIds()) {
+            NavigableSet<Entry> genreFilms = byGenre.get(genreId);
+            if (genreFilms != null && !(sameLikes && Arrays.binarySearch(kept.genreIds(), genreId) >= 0)) {
+                genreFilms.remove(entry);
+            }
+        }
+        if (stats.year() != null && !(sameLikes && stats.year().equals(kept.year()))) {
+            NavigableSet<Entry> yearFilms = byYear.get(stats.year());
+            if (yearFilms != null) {
+                yearFilms.remove(entry);
+            }
+        }
+    }
+
+    private boolean hasYear(long filmId, int year) {
+        FilmStats stats = films.get(filmId);
+        return stats != null && stats.year() != null && stats.year() == year;
+    }
+
+    private boolean hasGenre(long filmId, long genreId) {
+        FilmStats stats = films.get(filmId);
+        return stats != null && Arrays.binarySearch(stats.genreIds(), genreId) >= 0;
+    }
+
+    private List<Long> take(Iterator<Entry> entries, int limit, Predicate<Long> filter) {
+        List<Long> filmIds = new ArrayList<>(Math.max(0, Math.min(limit, films.size())));
+        Set<Long> seen = new HashSet<>();
+        while (filmIds.size() < limit && entries.hasNext()) {
+            long filmId = entries.next().filmId();
+            if (seen.add(filmId) && filter.test(filmId)) {
+                filmIds.add(filmId);
+            }
+        }
+        return filmIds;
+    }
+
+    private Map<Long, FilmStats> loadFilmStats(Long filmId) {
+        final String GET_FILMS_POPULARITY_QUERY = """
+                SELECT f.film_id,
+                       EXTRACT(YEAR FROM f.release_date) AS release_year,
+                       f.likes_count AS likes,
+                       fg.genre_id
+                FROM films f
+                LEFT JOIN films_genres fg ON fg.film_id = f.film_id
+                """ + (filmId == null ? "" : "WHERE f.film_id = ?\n") + """
+                ORDER BY f.film_id, fg.genre_id
+                """;
+        Object[] args = filmId == null ? new Object[0] : new Object[]{filmId};
+
+        return jdbcTemplate.query(GET_FILMS_POPULARITY_QUERY, rs -> {
+            Map<Long, FilmStats> result = new HashMap<>();
+            Map<Long, List<Long>> genres = new HashMap<>();
+            while (rs.next()) {
+                long id = rs.getLong("film_id");
+                int year = rs.getInt("release_year");
+                Integer releaseYear = rs.wasNull() ? null : year;
+                result.putIfAbsent(id, new FilmStats(rs.getInt("likes"), new long[0], releaseYear));
+
+                long genreId = rs.getLong("genre_id");
+                if (!rs.wasNull()) {
+                    genres.computeIfAbsent(id, k -> new ArrayList<>()).add(genreId);
+                }
+            }
+            genres.forEach((id, genreIds) -> result.computeIfPresent(id, (k, stats) -> new FilmStats(stats.likes(),
+                    genreIds.stream().mapToLong(Long::longValue).toArray(), stats.year())));
+            return result;
+        }, args);
+    }
+
+    private record Entry(int likes, long filmId) {
+    }
+
+    private record FilmStats(int likes, long[] genreIds, Integer year) {
+        FilmStats withLikes(int newLikes) {
+            return new FilmStats(newLikes, genreIds, year);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FilmStats other && likes == other.likes
+                    && Arrays.equals(genreIds, other.genreIds) && Objects.equals(year, other.year);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(likes, Arrays.hashCode(genreIds), year);
+        }
+    }
+
+    /**
+     * Слияние двух упорядоченных по популярности последовательностей в одну
+     */
+    private static final class MergingIterator implements Iterator<Entry> {
+        private final Iterator<Entry> first;
+        private final Iterator<Entry> second;
+        private Entry nextFirst;
+        private Entry nextSecond;
+
+        MergingIterator(Iterator<Entry> first, Iterator<Entry> second) {
+            this.first = first;
+            this.second = second;
+            this.nextFirst = first.hasNext() ? first.next() : null;
+            this.nextSecond = second.hasNext() ? second.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextFirst != null || nextSecond != null;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry result;
+            if (nextSecond == null || (nextFirst != null && BY_POPULARITY.compare(nextFirst, nextSecond) <= 0)) {
+                result = nextFirst;
+                nextFirst = first.hasNext() ? first.next() : null;
+            } else {
+                result = nextSecond;
+                nextSecond = second.hasNext() ? second.next() : null;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.entity.Director;
+import ru.yandex.practicum.filmorate.entity.Film;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс для поиска фильмов по подстроке названия и имени режиссёра. Названия фильмов и имена режиссёров
+ * разбиваются на триграммы; для каждой триграммы хранится множество id фильмов (или режиссёров), в названии
+ * которых она встречается. Поиск подстроки - пересечение множеств всех триграмм запроса с последующей
+ * проверкой кандидатов. Запросы короче триграммы проверяются перебором названий в памяти.
+ * Индекс собирается из БД при старте и далее обновляется сервисами при изменении фильмов и режиссёров.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FilmSearchIndex {
+    private static final int GRAM = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityLeaderboard leaderboard;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final GramIndex titles = new GramIndex();
+    private final GramIndex directorNames = new GramIndex();
+    private final Map<Long, Set<Long>> directorsByFilm = new HashMap<>();
+    private final Map<Long, Set<Long>> filmsByDirector = new HashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        log.debug("(Search) Построение поискового индекса фильмов");
+
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            directorNames.clear();
+            directorsByFilm.clear();
+            filmsByDirector.clear();
+
+            jdbcTemplate.query("SELECT film_id, film_name FROM films", rs -> {
+                titles.put(rs.getLong("film_id"), rs.getString("film_name"));
+            });
+            jdbcTemplate.query("SELECT id, name FROM directors", rs -> {
+                directorNames.put(rs.getLong("id"), rs.getString("name"));
+            });
+            jdbcTemplate.query("SELECT film_id, director_id FROM films_directors", rs -> {
+                link(rs.getLong("film_id"), rs.getLong("director_id"));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("(Search) Поисковый индекс построен. Фильмов: {}, режиссёров: {}", titles.size(), directorNames.size());
+    }
+
+    public void onFilmSaved(Film film) {
+        lock.writeLock().lock();
+        try {
+            titles.put(film.getId(), film.getName());
+            unlinkFilm(film.getId());
+            for (Director director : film.getDirectors()) {
+                link(film.getId(), director.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onFilmDeleted(long filmId) {
+        lock.writeLock().lock();
+        try {
+            titles.remove(filmId);
+            unlinkFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onDirectorSaved(Director director) {
+        lock.writeLock().lock();
+        try {
+            directorNames.put(director.getId(), director.getName());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onDirectorDeleted(long directorId) {
+        lock.writeLock().lock();
+        try {
+            directorNames.remove(directorId);
+            Set<Long> films = filmsByDirector.remove(directorId);
+            if (films != null) {
+                for (Long filmId : films) {
+                    Set<Long> directors = directorsByFilm.get(filmId);
+                    directors.remove(directorId);
+                    if (directors.isEmpty()) {
+                        directorsByFilm.remove(filmId);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет фильмы, название которых и/или имя одного из режиссёров которых содержит query без учёта регистра
+     *
+     * @return id найденных фильмов по убыванию количества лайков, при равенстве - по возрастанию id
+     */
+    public List<Long> search(String query, boolean byTitle, boolean byDirector) {
+        String text = normalize(query);
+        Set<Long> filmIds = new HashSet<>();
+
+        lock.readLock().lock();
+        try {
+            if (byTitle) {
+                filmIds.addAll(titles.find(text));
+            }
+            if (byDirector) {
+                for (Long directorId : directorNames.find(text)) {
+                    filmIds.addAll(filmsByDirector.getOrDefault(directorId, Collections.emptySet()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return leaderboard.sortByPopularity(filmIds);
+    }
+
+    private void link(long filmId, long directorId) {
+        directorsByFilm.computeIfAbsent(filmId, k -> new HashSet<>()).add(directorId);
+        filmsByDirector.computeIfAbsent(directorId, k -> new HashSet<>()).add(filmId);
+    }
+
+    private void unlinkFilm(long filmId) {
+        Set<Long> directors = directorsByFilm.remove(filmId);
+        if (directors == null) {
+            return;
+        }
+        for (Long directorId : directors) {
+            Set<Long> films = filmsByDirector.get(directorId);
+            films.remove(filmId);
+            if (films.isEmpty()) {
+                filmsByDirector.remove(directorId);
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+
+    /**
+     * Триграмма из трёх символов, упакованная в long, чтобы не создавать строку на каждую триграмму
+     */
+    private static long gram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+
+    /**
+     * Инвертированный индекс триграмм: id документа -> нормализованный текст, триграмма -> id документов
+     */
+    private static final class GramIndex {
+        private final Map<Long, String> texts = new HashMap<>();
+        private final Map<Long, Set<Long>> postings = new HashMap<>();
+
+        void put(long id, String text) {
+            remove(id);
+            String normalized = normalize(text);
+            texts.put(id, normalized);
+            for (int i = 0; i + GRAM <= normalized.length(); i++) {
+                postings.computeIfAbsent(gram(normalized, i), k -> new HashSet<>()).add(id);
+            }
+        }
+
+        void remove(long id) {
+            String text = texts.remove(id);
+            if (text == null) {
+                return;
+            }
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                long gram = gram(text, i);
+                Set<Long> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+
+        void clear() {
+            texts.clear();
+            postings.clear();
+        }
+
+        int size() {
+            return texts.size();
+        }
+
+        Collection<Long> find(String query) {
+            if (query.length() < GRAM) {
+                return texts.entrySet().stream()
+                        .filter(entry -> entry.getValue().contains(query))
+                        .map(Map.Entry::getKey)
+                        .toList();
+            }
+
+            // Пересечение начинается с самого короткого списка, остальные только проверяют принадлежность
+            List<Set<Long>> lists = new ArrayList<>();
+            for (int i = 0; i + GRAM <= query.length(); i++) {
+                Set<Long> ids = postings.get(gram(query, i));
+                if (ids == null) {
+                    return Collections.emptyList();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+
+            List<Long> result = new ArrayList<>();
+            for (Long id : lists.get(0)) {
+                if (containsInAll(lists, id) && texts.get(id).contains(query)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        private static boolean containsInAll(List<Set<Long>> lists, Long id) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
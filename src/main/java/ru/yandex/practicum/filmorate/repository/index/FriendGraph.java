@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ru.yandex.practicum.filmorate.repository.index.IntRow.*;
+
+/**
+ * Направленный граф дружбы в памяти приложения: для каждого пользователя - отсортированный массив id его друзей
+ * и отсортированный массив id пользователей, добавивших его в друзья (нужен для удаления пользователя).
+ * Общие друзья двух пользователей находятся слиянием двух отсортированных массивов, без обращения к БД.
+ * Граф собирается из friendship при старте и далее обновляется сервисами при добавлении/удалении друга
+ * или пользователя.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FriendGraph {
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IntRow[] friends = new IntRow[0];
+    private IntRow[] followers = new IntRow[0];
+
+    @PostConstruct
+    public void rebuild() {
+        log.debug("(FriendGraph) Построение графа дружбы");
+
+        IntRow[][] rows = {new IntRow[0], new IntRow[0]};
+        long[] edges = {0};
+        jdbcTemplate.query("""
+                SELECT user_id, friend_id
+                FROM friendship
+                ORDER BY user_id, friend_id
+                """, rs -> {
+            int userId = Math.toIntExact(rs.getLong("user_id"));
+            int friendId = Math.toIntExact(rs.getLong("friend_id"));
+            rows[0] = ensureCapacity(rows[0], userId);
+            rowFor(rows[0], userId).add(friendId);
+            rows[1] = ensureCapacity(rows[1], friendId);
+            rowFor(rows[1], friendId).add(userId);
+            edges[0]++;
+        });
+
+        lock.writeLock().lock();
+        try {
+            friends = rows[0];
+            followers = rows[1];
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("(FriendGraph) Граф дружбы построен. Связей: {}", edges[0]);
+    }
+
+    public void addFriend(long userId, long friendId) {
+        int user = Math.toIntExact(userId);
+        int friend = Math.toIntExact(friendId);
+        lock.writeLock().lock();
+        try {
+            friends = ensureCapacity(friends, user);
+            followers = ensureCapacity(followers, friend);
+            rowFor(friends, user).add(friend);
+            rowFor(followers, friend).add(user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        int user = Math.toIntExact(userId);
+        int friend = Math.toIntExact(friendId);
+        lock.writeLock().lock();
+        try {
+            row(friends, user).remove(friend);
+            row(followers, friend).remove(user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет пользователя вместе со всеми связями, в которых он участвует - как в БД при каскадном удалении
+     */
+    public void removeUser(long userId) {
+        int user = Math.toIntExact(userId);
+        lock.writeLock().lock();
+        try {
+            IntRow userFriends = row(friends, user);
+            for (int i = 0; i < userFriends.size; i++) {
+                row(followers, userFriends.values[i]).remove(user);
+            }
+            IntRow userFollowers = row(followers, user);
+            for (int i = 0; i < userFollowers.size; i++) {
+                row(friends, userFollowers.values[i]).remove(user);
+            }
+            if (user < friends.length) {
+                friends[user] = null;
+            }
+            if (user < followers.length) {
+                followers[user] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return id друзей пользователя по возрастанию
+     */
+    public List<Long> getFriendIds(long userId) {
+        lock.readLock().lock();
+        try {
+            IntRow userFriends = row(friends, Math.toIntExact(userId));
+            return toIds(userFriends.values, userFriends.size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return id общих друзей двух пользователей по возрастанию
+     */
+    public List<Long> getCommonFriendIds(long userId, long otherId) {
+        lock.readLock().lock();
+        try {
+            int[] common = row(friends, Math.toIntExact(userId)).intersection(row(friends, Math.toIntExact(otherId)));
+            return toIds(common, common.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Число общих друзей пользователя с каждым из кандидатов. Граф читается под одной блокировкой,
+     * поэтому все значения соответствуют одному состоянию графа
+     *
+     * @return id кандидата -> число общих друзей, в порядке переданных кандидатов
+     */
+    public Map<Long, Integer> countMutualFriends(long userId, Collection<Long> candidateIds) {
+        Map<Long, Integer> counts = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            IntRow userFriends = row(friends, Math.toIntExact(userId));
+            for (long candidateId : candidateIds) {
+                counts.put(candidateId, userFriends.intersectionSize(row(friends, Math.toIntExact(candidateId))));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    private static List<Long> toIds(int[] values, int size) {
+        List<Long> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add((long) values[i]);
+        }
+        return ids;
+    }
+}
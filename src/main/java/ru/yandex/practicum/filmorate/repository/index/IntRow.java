@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import java.util.Arrays;
+
+/**
+ * Отсортированный растущий массив int без повторов. Строки индексов хранятся в массивах IntRow[],
+ * где индекс - id пользователя или фильма; отсутствующая строка равна null и читается как пустая
+ */
+final class IntRow {
+    static final IntRow EMPTY = new IntRow();
+
+    int[] values = new int[0];
+    int size;
+
+    boolean add(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        return true;
+    }
+
+    boolean remove(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * @return число общих элементов двух строк; оба массива отсортированы, поэтому хватает одного прохода слиянием
+     */
+    int intersectionSize(IntRow other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            int a = values[i];
+            int b = other.values[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return общие элементы двух строк по возрастанию
+     */
+    int[] intersection(IntRow other) {
+        int[] common = new int[Math.min(size, other.size)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            int a = values[i];
+            int b = other.values[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                common[count++] = a;
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, count);
+    }
+
+    static IntRow row(IntRow[] rows, int id) {
+        IntRow row = id >= 0 && id < rows.length ? rows[id] : null;
+        return row == null ? EMPTY : row;
+    }
+
+    static IntRow rowFor(IntRow[] rows, int id) {
+        IntRow row = rows[id];
+        if (row == null) {
+            row = new IntRow();
+            rows[id] = row;
+        }
+        return row;
+    }
+
+    static IntRow[] ensureCapacity(IntRow[] rows, int id) {
+        if (id < rows.length) {
+            return rows;
+        }
+        return Arrays.copyOf(rows, Math.max(id + 1, rows.length + (rows.length >> 1)));
+    }
+}
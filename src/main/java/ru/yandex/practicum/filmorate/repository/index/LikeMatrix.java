@@ -0,0 +1,312 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ru.yandex.practicum.filmorate.repository.index.IntRow.*;
+
+/**
+ * Матрица лайков пользователь x фильм в памяти приложения. Хранится в двух разрезах: для каждого пользователя -
+ * отсортированный массив id лайкнутых фильмов, для каждого фильма - отсортированный массив id лайкнувших
+ * пользователей. Оба разреза индексируются id напрямую, без боксинга.
+ * Матрица собирается из users_films_like при старте и далее обновляется сервисами при каждом
+ * добавлении/удалении лайка, пользователя или фильма.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LikeMatrix {
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IntRow[] filmsByUser = new IntRow[0];
+    private IntRow[] usersByFilm = new IntRow[0];
+
+    @PostConstruct
+    public void rebuild() {
+        log.debug("(LikeMatrix) Построение матрицы лайков");
+
+        IntRow[][] rows = {new IntRow[0], new IntRow[0]};
+        long[] likes = {0};
+        jdbcTemplate.query("""
+                SELECT user_id, film_id
+                FROM users_films_like
+                ORDER BY user_id, film_id
+                """, rs -> {
+            int userId = Math.toIntExact(rs.getLong("user_id"));
+            int filmId = Math.toIntExact(rs.getLong("film_id"));
+            rows[0] = ensureCapacity(rows[0], userId);
+            rowFor(rows[0], userId).add(filmId);
+            rows[1] = ensureCapacity(rows[1], filmId);
+            rowFor(rows[1], filmId).add(userId);
+            likes[0]++;
+        });
+
+        lock.writeLock().lock();
+        try {
+            filmsByUser = rows[0];
+            usersByFilm = rows[1];
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("(LikeMatrix) Матрица лайков построена. Лайков: {}", likes[0]);
+    }
+
+    public void addLike(long userId, long filmId) {
+        int user = Math.toIntExact(userId);
+        int film = Math.toIntExact(filmId);
+        lock.writeLock().lock();
+        try {
+            filmsByUser = ensureCapacity(filmsByUser, user);
+            usersByFilm = ensureCapacity(usersByFilm, film);
+            rowFor(filmsByUser, user).add(film);
+            rowFor(usersByFilm, film).add(user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeLike(long userId, long filmId) {
+        int user = Math.toIntExact(userId);
+        int film = Math.toIntExact(filmId);
+        lock.writeLock().lock();
+        try {
+            row(filmsByUser, user).remove(film);
+            row(usersByFilm, film).remove(user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(long userId) {
+        int user = Math.toIntExact(userId);
+        lock.writeLock().lock();
+        try {
+            IntRow films = row(filmsByUser, user);
+            for (int i = 0; i < films.size; i++) {
+                row(usersByFilm, films.values[i]).remove(user);
+            }
+            if (user < filmsByUser.length) {
+                filmsByUser[user] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        int film = Math.toIntExact(filmId);
+        lock.writeLock().lock();
+        try {
+            IntRow users = row(usersByFilm, film);
+            for (int i = 0; i < users.size; i++) {
+                row(filmsByUser, users.values[i]).remove(film);
+            }
+            if (film < usersByFilm.length) {
+                usersByFilm[film] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Рекомендации методом коллаборативной фильтрации: находит neighbours пользователей с наибольшим
+     * коэффициентом Жаккара между множествами лайков и предлагает фильмы, которые нравятся соседям,
+     * но ещё не лайкнуты пользователем. Оценка фильма - сумма коэффициентов сходства соседей, которые его лайкнули
+     *
+     * @return фильмы по убыванию оценки, при равенстве - по возрастанию id
+     */
+    public List<ScoredFilm> recommend(long userId, int neighbours) {
+        int user = Math.toIntExact(userId);
+        lock.readLock().lock();
+        try {
+            IntRow liked = row(filmsByUser, user);
+            if (liked.size == 0 || neighbours <= 0) {
+                return Collections.emptyList();
+            }
+
+            // Число общих лайков с каждым пользователем, лайкнувшим хотя бы один из тех же фильмов
+            IntDoubleMap overlaps = new IntDoubleMap(liked.size * 4);
+            for (int i = 0; i < liked.size; i++) {
+                IntRow coLikers = row(usersByFilm, liked.values[i]);
+                for (int j = 0; j < coLikers.size; j++) {
+                    if (coLikers.values[j] != user) {
+                        overlaps.add(coLikers.values[j], 1);
+                    }
+                }
+            }
+
+            PriorityQueue<Neighbour> nearest = new PriorityQueue<>(neighbours + 1, Neighbour.WORST_FIRST);
+            overlaps.forEach((other, overlap) -> {
+                int otherSize = row(filmsByUser, other).size;
+                double similarity = overlap / (liked.size + otherSize - overlap);
+                nearest.add(new Neighbour(other, similarity));
+                if (nearest.size() > neighbours) {
+                    nearest.poll();
+                }
+            });
+
+            IntDoubleMap scores = new IntDoubleMap(16);
+            for (Neighbour neighbour : nearest) {
+                IntRow films = row(filmsByUser, neighbour.userId());
+                for (int i = 0; i < films.size; i++) {
+                    if (!liked.contains(films.values[i])) {
+                        scores.add(films.values[i], neighbour.similarity());
+                    }
+                }
+            }
+
+            List<ScoredFilm> recommendations = new ArrayList<>(scores.size());
+            scores.forEach((filmId, score) -> recommendations.add(new ScoredFilm(filmId, score)));
+            recommendations.sort(Comparator.comparingDouble(ScoredFilm::score).reversed()
+                    .thenComparingLong(ScoredFilm::filmId));
+            return recommendations;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return id фильмов, лайкнутых обоими пользователями, по возрастанию
+     */
+    public List<Long> getCommonFilmIds(long userId, long otherId) {
+        lock.readLock().lock();
+        try {
+            int[] common = row(filmsByUser, Math.toIntExact(userId))
+                    .intersection(row(filmsByUser, Math.toIntExact(otherId)));
+            List<Long> filmIds = new ArrayList<>(common.length);
+            for (int filmId : common) {
+                filmIds.add((long) filmId);
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return false и для id, которых не может быть в матрице (отрицательных или больше Integer.MAX_VALUE)
+     */
+    public boolean hasLike(long userId, long filmId) {
+        if (!isIndexable(userId) || !isIndexable(filmId)) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return row(filmsByUser, (int) userId).contains((int) filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Проверка лайков пользователя сразу для нескольких фильмов под одной блокировкой
+     *
+     * @return id фильма -> есть ли лайк, в порядке переданных id
+     */
+    public Map<Long, Boolean> hasLikes(long userId, Collection<Long> filmIds) {
+        Map<Long, Boolean> likes = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            IntRow liked = isIndexable(userId) ? row(filmsByUser, (int) userId) : IntRow.EMPTY;
+            for (long filmId : filmIds) {
+                likes.put(filmId, isIndexable(filmId) && liked.contains((int) filmId));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return likes;
+    }
+
+    public record ScoredFilm(long filmId, double score) {
+    }
+
+    private static boolean isIndexable(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE;
+    }
+
+    private record Neighbour(int userId, double similarity) {
+        static final Comparator<Neighbour> WORST_FIRST = Comparator.comparingDouble(Neighbour::similarity)
+                .thenComparing(Comparator.comparingInt(Neighbour::userId).reversed());
+    }
+
+    /**
+     * Хэш-таблица int -> double с открытой адресацией для накопления счётчиков без боксинга.
+     * Размер пропорционален числу затронутых ключей, а не общему числу пользователей или фильмов
+     */
+    private static final class IntDoubleMap {
+        private static final int FREE = -1;
+
+        private int[] keys;
+        private double[] values;
+        private int size;
+
+        IntDoubleMap(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+            keys = new int[capacity];
+            values = new double[capacity];
+            Arrays.fill(keys, FREE);
+        }
+
+        void add(int key, double delta) {
+            int mask = keys.length - 1;
+            int index = mix(key) & mask;
+            while (keys[index] != FREE && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            if (keys[index] == FREE) {
+                keys[index] = key;
+                if (++size * 2 > keys.length) {
+                    values[index] = delta;
+                    grow();
+                    return;
+                }
+            }
+            values[index] += delta;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(Entry consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != FREE) {
+                    consumer.accept(keys[i], values[i]);
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            double[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new double[oldValues.length * 2];
+            Arrays.fill(keys, FREE);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    add(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        @FunctionalInterface
+        interface Entry {
+            void accept(int key, double value);
+        }
+    }
+}
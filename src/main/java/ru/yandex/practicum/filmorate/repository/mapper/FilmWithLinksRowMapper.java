@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.repository.mapper;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import ru.yandex.practicum.filmorate.entity.Director;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.entity.Genre;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Собирает полностью заполненные фильмы (MPA, жанры, режиссёры) из одного запроса,
+ * в котором строки фильма размножены LEFT JOIN-ами на films_genres и films_directors.
+ * Ожидает колонки f.*, mpa_name, genre_id, genre_name, director_id, director_name.
+ * Порядок фильмов совпадает с порядком строк в выборке.
+ */
+public class FilmWithLinksRowMapper implements ResultSetExtractor<List<Film>> {
+    private final FilmRowMapper filmRowMapper = new FilmRowMapper();
+
+    @Override
+    public List<Film> extractData(ResultSet rs) throws SQLException {
+        Map<Long, Film> films = new LinkedHashMap<>();
+
+        while (rs.next()) {
+            long filmId = rs.getLong("film_id");
+            Film film = films.get(filmId);
+            if (film == null) {
+                film = filmRowMapper.mapRow(rs, rs.getRow()).toBuilder()
+                        .genres(new LinkedHashSet<>())
+                        .directors(new LinkedHashSet<>())
+                        .build();
+                films.put(filmId, film);
+            }
+
+            long genreId = rs.getLong("genre_id");
+            if (!rs.wasNull()) {
+                film.getGenres().add(new Genre(genreId, rs.getString("genre_name")));
+            }
+
+            long directorId = rs.getLong("director_id");
+            if (!rs.wasNull()) {
+                film.getDirectors().add(new Director(directorId, rs.getString("director_name")));
+            }
+        }
+
+        return new ArrayList<>(films.values());
+    }
+}
@@ -4,18 +4,28 @@ import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.entity.EventOperation;
 import ru.yandex.practicum.filmorate.entity.EventType;
 import ru.yandex.practicum.filmorate.repository.EventLogger;
+import ru.yandex.practicum.filmorate.repository.cache.ResourceVersions;
 
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.FEED;
+
+/**
+ * Синхронная запись событий: каждое событие записывается в БД сразу, в потоке запроса.
+ * Используется, если отложенная запись выключена (filmorate.events.write-behind.enabled: false)
+ */
 @FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
 @AllArgsConstructor
 @Component
+@ConditionalOnProperty(name = "filmorate.events.write-behind.enabled", havingValue = "false")
 @Slf4j
 public class DataBaseEventLogger implements EventLogger {
     private final JdbcTemplate jdbcTemplate;
+    private final ResourceVersions versions;
 
     public void logEvent(long userId, EventType type, EventOperation operation, long entityId) {
         log.debug("Начало регистрации новой операция '{}' над '{}' от пользователя с id = '{}'. Id субъекта = '{}'",
@@ -29,6 +39,7 @@ public class DataBaseEventLogger implements EventLogger {
                 VALUES (?, ?, ?, ?, ?)
                 """;
         jdbcTemplate.update(LOG_EVENT_QUERY, userId, typeId, operationId, entityId, eventTimestamp);
+        versions.bump(FEED, userId);
         log.debug("Операция успешно зарегестрирована");
     }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.repository.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ограничение числа одновременных обращений к БД для режима виртуальных потоков (spring.threads.virtual.enabled).
+ * Виртуальных потоков с запросами может быть сколько угодно, а соединений в пуле - filmorate.db.max-concurrency
+ * (по умолчанию размер пула). Соединение выдаётся только по разрешению честного семафора: лишние запросы ждут
+ * своей очереди перед пулом, а если разрешение не получено за filmorate.db.acquire-timeout-ms, запрос
+ * завершается ошибкой 503 вместо бесконечного накопления ожидающих потоков
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class DbConcurrencyLimiter implements BeanPostProcessor {
+    private final int maxConcurrency;
+    private final long acquireTimeoutMs;
+
+    public DbConcurrencyLimiter(Environment environment) {
+        this.maxConcurrency = environment.getProperty("filmorate.db.max-concurrency", Integer.class,
+                environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+        this.acquireTimeoutMs = environment.getProperty("filmorate.db.acquire-timeout-ms", Long.class, 30_000L);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof LimitedDataSource)) {
+            log.info("(Db) Одновременных обращений к БД не больше {}, ожидание соединения до {} мс",
+                    maxConcurrency, acquireTimeoutMs);
+            return new LimitedDataSource(dataSource, new Semaphore(maxConcurrency, true), acquireTimeoutMs);
+        }
+        return bean;
+    }
+
+    private static final class LimitedDataSource extends DelegatingDataSource {
+        private final Semaphore permits;
+        private final long acquireTimeoutMs;
+
+        LimitedDataSource(DataSource target, Semaphore permits, long acquireTimeoutMs) {
+            super(target);
+            this.permits = permits;
+            this.acquireTimeoutMs = acquireTimeoutMs;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            acquire();
+            return releasingOnClose(obtainTargetDataSource()::getConnection);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            acquire();
+            return releasingOnClose(() -> obtainTargetDataSource().getConnection(username, password));
+        }
+
+        private void acquire() throws SQLException {
+            try {
+                if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new SQLTransientConnectionException(
+                            "Нет свободного соединения с БД за " + acquireTimeoutMs + " мс");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Ожидание соединения с БД прервано", e);
+            }
+        }
+
+        /**
+         * Разрешение возвращается при закрытии соединения, т.е. при его возврате в пул
+         */
+        private Connection releasingOnClose(ConnectionSupplier supplier) throws SQLException {
+            Connection target;
+            try {
+                target = supplier.get();
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                            try {
+                                target.close();
+                            } finally {
+                                permits.release();
+                            }
+                            return null;
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.repository.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Локальный журнал событий с дозаписью в конец файла. Событие попадает в журнал до постановки в очередь на запись
+ * в БД, поэтому принятые события переживают падение процесса. Рядом с журналом хранится checkpoint - номер
+ * последнего события, записанного в БД; при старте события после checkpoint дописываются в БД повторно.
+ * Формат записи - строка "seq;userId;typeId;operationId;entityId;timestamp"
+ */
+@Slf4j
+final class EventJournal implements AutoCloseable {
+    private static final int COMPACT_THRESHOLD_BYTES = 1 << 20;
+
+    private final Path checkpointPath;
+    private final FileChannel channel;
+    private final boolean fsync;
+
+    EventJournal(Path path, boolean fsync) throws IOException {
+        this.checkpointPath = path.resolveSibling(path.getFileName() + ".checkpoint");
+        this.fsync = fsync;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // Запись всегда идёт в конец файла; после truncate позиция сама переносится в начало
+        this.channel.position(channel.size());
+    }
+
+    void append(PendingEvent event) {
+        String line = String.format("%d;%d;%d;%d;%d;%d%n", event.seq(), event.userId(), event.typeId(),
+                event.operationId(), event.entityId(), event.timestamp());
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать событие в журнал", e);
+        }
+    }
+
+    long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointPath)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(checkpointPath).trim());
+    }
+
+    void writeCheckpoint(long seq) throws IOException {
+        Path tmp = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+        Files.writeString(tmp, Long.toString(seq));
+        Files.move(tmp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return события журнала с номером больше checkpoint; недописанная при падении последняя строка пропускается
+     */
+    List<PendingEvent> readAfter(long checkpoint) throws IOException {
+        List<PendingEvent> events = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+        channel.read(buffer, 0);
+        String content = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+        for (String line : content.split("\n")) {
+            String[] fields = line.trim().split(";");
+            if (fields.length != 6) {
+                continue;
+            }
+            try {
+                PendingEvent event = new PendingEvent(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), Long.parseLong(fields[4]),
+                        Long.parseLong(fields[5]));
+                if (event.seq() > checkpoint) {
+                    events.add(event);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("(Events) Пропущена повреждённая запись журнала: {}", line);
+            }
+        }
+        return events;
+    }
+
+    boolean needsCompaction() throws IOException {
+        return channel.size() > COMPACT_THRESHOLD_BYTES;
+    }
+
+    /**
+     * Очищает журнал. Вызывается, только когда все события журнала уже записаны в БД
+     */
+    void truncate() throws IOException {
+        channel.truncate(0);
+        if (fsync) {
+            channel.force(true);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
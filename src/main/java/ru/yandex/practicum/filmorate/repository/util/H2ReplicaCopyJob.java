@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.repository.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSetMetaData;
+import java.util.*;
+
+/**
+ * Реплика для локальной проверки чтения с реплики: H2, которая с периодом filmorate.db.replica.copy.interval-ms
+ * заполняется копией основной БД. При старте на реплике создаются таблицы из schema.sql.
+ * <p>
+ * Основная БД читается в одной транзакции REPEATABLE READ, поэтому копия согласована, а heartbeat в ней
+ * соответствует моменту копирования. Реплика перезаписывается в одной транзакции: читатели реплики видят
+ * либо прежнюю копию, либо новую целиком. Копируется вся БД, поэтому режим подходит только для небольших данных
+ */
+@Component
+@ConditionalOnExpression("${filmorate.db.replica.enabled:false} and ${filmorate.db.replica.copy.enabled:false}")
+@Slf4j
+public class H2ReplicaCopyJob {
+    private final JdbcTemplate primary;
+    private final TransactionTemplate primarySnapshot;
+    private final DataSource replicaDataSource;
+    private final JdbcTemplate replica;
+    private final TransactionTemplate replicaTransaction;
+
+    public H2ReplicaCopyJob(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            ReadReplicaRouting routing) {
+        this.primary = jdbcTemplate;
+        this.primarySnapshot = new TransactionTemplate(transactionManager);
+        primarySnapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.replicaDataSource = routing.replica();
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.replicaTransaction = new TransactionTemplate(new DataSourceTransactionManager(replicaDataSource));
+    }
+
+    @PostConstruct
+    public void createSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(replicaDataSource);
+        // Таблицы перезаписываются в произвольном порядке; целостность гарантирует основная БД
+        replica.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        log.info("(Db) На реплике созданы таблицы, реплика заполняется копией основной БД");
+        copy();
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.db.replica.copy.interval-ms:2000}",
+            fixedDelayString = "${filmorate.db.replica.copy.interval-ms:2000}")
+    public void copy() {
+        final String GET_TABLES_QUERY = """
+                SELECT table_name
+                FROM information_schema.tables
+                WHERE table_schema = 'PUBLIC' AND table_type = 'BASE TABLE'
+                ORDER BY table_name
+                """;
+        long startedAt = System.currentTimeMillis();
+
+        List<Table> tables = primarySnapshot.execute(status -> primary.queryForList(GET_TABLES_QUERY, String.class)
+                .stream()
+                .map(table -> primary.query("SELECT * FROM " + quote(table), readTable(table)))
+                .toList());
+
+        replicaTransaction.executeWithoutResult(status -> {
+            for (Table table : Objects.requireNonNull(tables)) {
+                replica.update("DELETE FROM " + quote(table.name()));
+            }
+            for (Table table : tables) {
+                if (!table.rows().isEmpty()) {
+                    replica.batchUpdate(table.insertQuery(), table.rows());
+                }
+            }
+        });
+
+        log.debug("(Db) Основная БД скопирована в реплику за {} мс. Таблиц: {}",
+                System.currentTimeMillis() - startedAt, tables.size());
+    }
+
+    private static ResultSetExtractor<Table> readTable(String name) {
+        return rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            List<String> columns = new ArrayList<>(metaData.getColumnCount());
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnName(i));
+            }
+            List<Object[]> rows = new ArrayList<>();
+            while (rs.next()) {
+                Object[] row = new Object[columns.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                rows.add(row);
+            }
+            return new Table(name, columns, rows);
+        };
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private record Table(String name, List<String> columns, List<Object[]> rows) {
+        String insertQuery() {
+            StringJoiner names = new StringJoiner(", ", "(", ")");
+            StringJoiner values = new StringJoiner(", ", "(", ")");
+            for (String column : columns) {
+                names.add(quote(column));
+                values.add("?");
+            }
+            return "INSERT INTO " + quote(name) + " " + names + " VALUES " + values;
+        }
+    }
+}
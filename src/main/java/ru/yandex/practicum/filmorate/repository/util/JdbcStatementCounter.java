@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.repository.util;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+/**
+ * Счётчик SQL запросов, выполненных в текущем потоке. Оборачивает DataSource: каждое выполнение запроса
+ * (execute*, в том числе пакет executeBatch - как одно обращение к БД) увеличивает счётчик потока,
+ * если для потока он запущен через {@link #start()}. Используется для подсчёта запросов к БД на HTTP запрос
+ */
+@Component
+public class JdbcStatementCounter implements BeanPostProcessor {
+    private final ThreadLocal<int[]> counter = new ThreadLocal<>();
+
+    /**
+     * Начинает подсчёт запросов в текущем потоке с нуля
+     */
+    public void start() {
+        counter.set(new int[1]);
+    }
+
+    /**
+     * @return число запросов, выполненных в текущем потоке после {@link #start()}
+     */
+    public int current() {
+        int[] count = counter.get();
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * Завершает подсчёт в текущем потоке
+     *
+     * @return число запросов, выполненных после {@link #start()}
+     */
+    public int stop() {
+        int count = current();
+        counter.remove();
+        return count;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)) {
+            return new CountingDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    private void increment() {
+        int[] count = counter.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+
+    private final class CountingDataSource extends DelegatingDataSource {
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(obtainTargetDataSource().getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(obtainTargetDataSource().getConnection(username, password));
+        }
+
+        private Connection counting(Connection target) {
+            return proxy(Connection.class, target, (proxy, method, args) -> {
+                Object result = invoke(target, method, args);
+                if (result instanceof CallableStatement statement) {
+                    return proxy(CallableStatement.class, statement, countingExecutions(statement));
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return proxy(PreparedStatement.class, statement, countingExecutions(statement));
+                }
+                if (result instanceof Statement statement) {
+                    return proxy(Statement.class, statement, countingExecutions(statement));
+                }
+                return result;
+            });
+        }
+
+        private InvocationHandler countingExecutions(Statement target) {
+            return (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    increment();
+                }
+                return invoke(target, method, args);
+            };
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
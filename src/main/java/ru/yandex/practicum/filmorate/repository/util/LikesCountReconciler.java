@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.repository.util;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Периодически сверяет денормализованный счётчик films.likes_count с фактическим числом записей
+ * в users_films_like. Найденные расхождения логируются и исправляются.
+ * Расписание задаётся свойством filmorate.likes-count.reconcile-cron
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LikesCountReconciler {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return количество фильмов, у которых счётчик лайков разошёлся с users_films_like и был пересчитан
+     */
+    @Scheduled(cron = "${filmorate.likes-count.reconcile-cron:0 0 4 * * *}")
+    @Transactional
+    public int reconcile() {
+        final String FIND_DRIFTED_FILMS_QUERY = """
+                SELECT f.film_id, f.likes_count, COUNT(uf.user_id) AS actual_count
+                FROM films f
+                LEFT JOIN users_films_like uf ON uf.film_id = f.film_id
+                GROUP BY f.film_id, f.likes_count
+                HAVING f.likes_count <> COUNT(uf.user_id)
+                """;
+        final String FIX_LIKES_COUNT_QUERY = """
+                UPDATE films
+                SET likes_count = (SELECT COUNT(*) FROM users_films_like WHERE film_id = ?)
+                WHERE film_id = ?
+                """;
+        log.debug("(Reconciler) Начало сверки счётчиков лайков фильмов");
+
+        List<Object[]> fixes = jdbcTemplate.query(FIND_DRIFTED_FILMS_QUERY, (rs, rowNum) -> {
+            long filmId = rs.getLong("film_id");
+            int storedCount = rs.getInt("likes_count");
+            int actualCount = rs.getInt("actual_count");
+            log.warn("(Reconciler) Расхождение счётчика лайков у фильма с id = {}: сохранено {}, фактически {}",
+                    filmId, storedCount, actualCount);
+            return new Object[]{filmId, filmId};
+        });
+
+        // Счётчик пересчитывается в самом UPDATE: лайки, поставленные или удалённые после выборки,
+        // не затираются прочитанным значением
+        if (!fixes.isEmpty()) {
+            jdbcTemplate.batchUpdate(FIX_LIKES_COUNT_QUERY, fixes);
+        }
+
+        log.info("(Reconciler) Сверка счётчиков лайков завершена. Исправлено фильмов: {}", fixes.size());
+        return fixes.size();
+    }
+}
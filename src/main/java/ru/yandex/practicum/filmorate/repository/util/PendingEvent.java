@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.repository.util;
+
+/**
+ * Событие ленты, принятое к записи, но ещё не записанное в БД.
+ * seq - сквозной порядковый номер, по которому отслеживается, какие события уже записаны
+ */
+record PendingEvent(long seq, long userId, int typeId, int operationId, long entityId, long timestamp) {
+}
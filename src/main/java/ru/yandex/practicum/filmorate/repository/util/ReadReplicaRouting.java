@@ -0,0 +1,280 @@
+package ru.yandex.practicum.filmorate.repository.util;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Чтение с реплики. Методы хранилищ с {@code @Transactional(readOnly = true)} получают соединение с репликой
+ * (filmorate.db.replica.url), все остальные обращения к БД - с основной БД. Соединение выбирается при первом
+ * запросе транзакции (LazyConnectionDataSourceProxy), когда уже известно, что транзакция только для чтения.
+ * Методы, результат которых кэшируется (FilmCache, индексы в памяти, ETag режиссёров и ленты), читают
+ * с основной БД: иначе кэш мог бы надолго сохранить устаревшие данные реплики.
+ * <p>
+ * Реплика используется, только пока её отставание не больше filmorate.db.replica.max-lag-ms. Отставание
+ * измеряет {@link ReplicaLagMonitor} по записи heartbeat, которая пишется в основную БД и доходит до реплики
+ * вместе с остальными данными. Если реплика недоступна или отстала, чтение идёт с основной БД.
+ * <p>
+ * Read-your-writes: HTTP запрос, который что-то записал, до конца обработки читает только с основной БД,
+ * а клиент получает время записи в cookie. Пока реплика не получила данные новее этого времени, запросы
+ * с cookie тоже читают с основной БД (сессию открывает и закрывает ReadYourWritesFilter). Асинхронная часть
+ * запроса (например, потоковая выгрузка) получает сессию через {@link #inCurrentSession(Runnable)}.
+ * Обращения без сессии - фоновые задачи и потоки, куда сессия не передана, - читают с основной БД:
+ * неизвестно, не ждёт ли клиент в них своих записей
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.db.replica.enabled", havingValue = "true")
+@Slf4j
+public class ReadReplicaRouting implements BeanPostProcessor, Ordered, DisposableBean {
+    private static final Set<String> UPDATE_METHODS = Set.of(
+            "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final HikariDataSource replica;
+    private final long maxLagMs;
+    private final ThreadLocal<Session> sessions = new ThreadLocal<>();
+    private final AtomicLong primaryConnections = new AtomicLong();
+    private final AtomicLong replicaConnections = new AtomicLong();
+    /**
+     * Время последнего heartbeat, дошедшего до реплики; 0 - реплика недоступна
+     */
+    private volatile long replicatedUpTo;
+
+    public ReadReplicaRouting(Environment environment) {
+        this.maxLagMs = environment.getProperty("filmorate.db.replica.max-lag-ms", Long.class, 5_000L);
+        this.replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(environment.getRequiredProperty("filmorate.db.replica.url"))
+                .driverClassName(environment.getProperty("filmorate.db.replica.driver-class-name"))
+                .username(environment.getProperty("filmorate.db.replica.username"))
+                .password(environment.getProperty("filmorate.db.replica.password"))
+                .build();
+        replica.setPoolName("replica");
+        replica.setMaximumPoolSize(environment.getProperty("spring.datasource.hikari.maximum-pool-size",
+                Integer.class, 10));
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof RoutedDataSource)) {
+            log.info("(Db) Чтение в read-only транзакциях - с реплики {}, допустимое отставание {} мс",
+                    replica.getJdbcUrl(), maxLagMs);
+            return new RoutedDataSource(new RoutingDataSource(dataSource));
+        }
+        return bean;
+    }
+
+    /**
+     * Оборачивает DataSource раньше остальных обработчиков, чтобы счётчики и ограничители соединений
+     * учитывали обращения и к основной БД, и к реплике
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void destroy() {
+        replica.close();
+    }
+
+    public DataSource replica() {
+        return replica;
+    }
+
+    /**
+     * Обновляет состояние реплики по результату очередной проверки heartbeat
+     *
+     * @param heartbeat время последнего heartbeat на реплике или null, если реплика недоступна
+     */
+    void onReplicaHeartbeat(Long heartbeat) {
+        boolean wasFresh = isReplicaFresh();
+        replicatedUpTo = heartbeat == null ? 0 : heartbeat;
+        boolean fresh = isReplicaFresh();
+        if (wasFresh && !fresh) {
+            log.warn("(Db) Реплика недоступна или отстаёт больше чем на {} мс, чтение переключено на основную БД",
+                    maxLagMs);
+        } else if (!wasFresh && fresh) {
+            log.info("(Db) Реплика догнала основную БД, чтение в read-only транзакциях - с реплики");
+        }
+    }
+
+    /**
+     * @return отставание реплики в мс по последнему heartbeat или NaN, если реплика недоступна
+     */
+    double lagMs() {
+        long upTo = replicatedUpTo;
+        return upTo == 0 ? Double.NaN : System.currentTimeMillis() - upTo;
+    }
+
+    long connections(boolean toReplica) {
+        return toReplica ? replicaConnections.get() : primaryConnections.get();
+    }
+
+    /**
+     * Начинает сессию HTTP запроса в текущем потоке
+     *
+     * @param lastWriteMs время последней записи клиента из cookie или 0
+     */
+    public void openSession(long lastWriteMs) {
+        sessions.set(new Session(lastWriteMs));
+    }
+
+    /**
+     * @return выполнил ли запрос текущего потока запись в основную БД
+     */
+    public boolean sessionWrote() {
+        Session session = sessions.get();
+        return session != null && session.wrote;
+    }
+
+    public void closeSession() {
+        sessions.remove();
+    }
+
+    /**
+     * Переносит сессию текущего потока в задачу, которая выполнится в другом потоке
+     */
+    public Runnable inCurrentSession(Runnable task) {
+        Session session = sessions.get();
+        if (session == null) {
+            return task;
+        }
+        return () -> {
+            Session previous = sessions.get();
+            sessions.set(session);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    sessions.remove();
+                } else {
+                    sessions.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Сколько клиент после записи читает с основной БД: дольше допустимого отставания реплики не нужно -
+     * к этому времени реплика либо получила запись, либо отстала и не используется
+     */
+    public Duration stickiness() {
+        return Duration.ofSeconds(Math.max(1, (maxLagMs + 999) / 1000));
+    }
+
+    private boolean isReplicaFresh() {
+        long upTo = replicatedUpTo;
+        return upTo != 0 && System.currentTimeMillis() - upTo <= maxLagMs;
+    }
+
+    private boolean routeToReplica(Session session) {
+        long upTo = replicatedUpTo;
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && upTo != 0 && System.currentTimeMillis() - upTo <= maxLagMs
+                && session != null && !session.wrote && session.lastWriteMs < upTo;
+    }
+
+    private static final class Session {
+        private final long lastWriteMs;
+        // Сессию могут использовать поток запроса и поток асинхронной части ответа
+        private volatile boolean wrote;
+
+        Session(long lastWriteMs) {
+            this.lastWriteMs = lastWriteMs;
+        }
+    }
+
+    private static final class RoutedDataSource extends LazyConnectionDataSourceProxy {
+        RoutedDataSource(DataSource target) {
+            super(target);
+        }
+    }
+
+    private final class RoutingDataSource extends DelegatingDataSource {
+        RoutingDataSource(DataSource primary) {
+            super(primary);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Session session = sessions.get();
+            if (routeToReplica(session)) {
+                replicaConnections.incrementAndGet();
+                return replica.getConnection();
+            }
+            primaryConnections.incrementAndGet();
+            return detectingWrites(obtainTargetDataSource().getConnection(), session);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            primaryConnections.incrementAndGet();
+            return detectingWrites(obtainTargetDataSource().getConnection(username, password), sessions.get());
+        }
+
+        /**
+         * Отмечает в сессии запроса первое изменение данных через соединение с основной БД
+         */
+        private Connection detectingWrites(Connection target, Session session) {
+            if (session == null || session.wrote) {
+                return target;
+            }
+            return proxy(Connection.class, target, (proxy, method, args) -> {
+                Object result = invoke(target, method, args);
+                if (result instanceof CallableStatement statement) {
+                    return proxy(CallableStatement.class, statement, detectingUpdates(statement, session));
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return proxy(PreparedStatement.class, statement, detectingUpdates(statement, session));
+                }
+                if (result instanceof Statement statement) {
+                    return proxy(Statement.class, statement, detectingUpdates(statement, session));
+                }
+                return result;
+            });
+        }
+
+        private InvocationHandler detectingUpdates(Statement target, Session session) {
+            return (proxy, method, args) -> {
+                Object result = invoke(target, method, args);
+                // execute возвращает false, если запрос вернул не результат выборки, а число изменённых строк
+                if (UPDATE_METHODS.contains(method.getName())
+                        || method.getName().equals("execute") && Boolean.FALSE.equals(result)) {
+                    session.wrote = true;
+                }
+                return result;
+            };
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
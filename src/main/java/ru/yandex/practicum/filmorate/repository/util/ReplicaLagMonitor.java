@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.repository.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Измеряет отставание реплики. С периодом filmorate.db.replica.heartbeat-interval-ms пишет текущее время
+ * в replica_heartbeat основной БД и читает ту же запись с реплики: время на реплике - момент, до которого
+ * реплика получила все изменения. Публикует метрики filmorate.db.replica.lag и filmorate.db.connections
+ * (тег target - primary или replica)
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.db.replica.enabled", havingValue = "true")
+@Slf4j
+public class ReplicaLagMonitor {
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final ReadReplicaRouting routing;
+
+    public ReplicaLagMonitor(JdbcTemplate jdbcTemplate, ReadReplicaRouting routing, MeterRegistry registry) {
+        this.primary = jdbcTemplate;
+        this.replica = new JdbcTemplate(routing.replica());
+        this.routing = routing;
+
+        TimeGauge.builder("filmorate.db.replica.lag", routing, TimeUnit.MILLISECONDS, ReadReplicaRouting::lagMs)
+                .description("Отставание реплики по последнему heartbeat")
+                .register(registry);
+        FunctionCounter.builder("filmorate.db.connections", routing, r -> r.connections(false))
+                .description("Соединения, выданные методам хранилищ")
+                .tag("target", "primary")
+                .register(registry);
+        FunctionCounter.builder("filmorate.db.connections", routing, r -> r.connections(true))
+                .description("Соединения, выданные методам хранилищ")
+                .tag("target", "replica")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.db.replica.heartbeat-interval-ms:1000}")
+    public void heartbeat() {
+        final String WRITE_HEARTBEAT_QUERY = """
+                UPDATE replica_heartbeat
+                SET written_at = ?
+                WHERE id = 1
+                """;
+        final String READ_HEARTBEAT_QUERY = """
+                SELECT written_at
+                FROM replica_heartbeat
+                WHERE id = 1
+                """;
+        primary.update(WRITE_HEARTBEAT_QUERY, System.currentTimeMillis());
+
+        Long replicatedUpTo;
+        try {
+            replicatedUpTo = replica.query(READ_HEARTBEAT_QUERY, rs -> rs.next() ? rs.getLong("written_at") : null);
+        } catch (DataAccessException e) {
+            log.debug("(Db) Не удалось прочитать heartbeat с реплики: {}", e.getMessage());
+            replicatedUpTo = null;
+        }
+        routing.onReplicaHeartbeat(replicatedUpTo);
+    }
+}
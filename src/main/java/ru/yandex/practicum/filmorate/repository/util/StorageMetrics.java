@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.repository.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики методов хранилищ (Db*Storage и DataBaseEventLogger), публикуются через /actuator/prometheus:
+ * <ul>
+ *     <li>filmorate.storage.calls - таймер вызовов с тегом outcome (success/error)</li>
+ *     <li>filmorate.storage.rows - число строк в результате, для методов, возвращающих коллекцию или Optional</li>
+ *     <li>filmorate.storage.errors - число исключений по типам</li>
+ * </ul>
+ * Все метрики помечены тегами storage (класс) и method
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class StorageMetrics {
+    private final MeterRegistry registry;
+    private final Map<Method, Meters> meters = new ConcurrentHashMap<>();
+
+    @Around("execution(public * *(..)) && (within(ru.yandex.practicum.filmorate.repository.Db*Storage) "
+            + "|| within(ru.yandex.practicum.filmorate.repository.util.DataBaseEventLogger))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Meters methodMeters = meters.computeIfAbsent(method, this::register);
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            methodMeters.success().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            int rows = rowCount(result);
+            if (rows >= 0) {
+                methodMeters.rows().record(rows);
+            }
+            return result;
+        } catch (Throwable e) {
+            methodMeters.error().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Counter.builder("filmorate.storage.errors")
+                    .tag("storage", methodMeters.storage())
+                    .tag("method", methodMeters.method())
+                    .tag("exception", e.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+            throw e;
+        }
+    }
+
+    private Meters register(Method method) {
+        String storage = method.getDeclaringClass().getSimpleName();
+        String name = method.getName();
+        return new Meters(storage, name,
+                timer(storage, name, "success"),
+                timer(storage, name, "error"),
+                DistributionSummary.builder("filmorate.storage.rows")
+                        .description("Число строк в результате метода хранилища")
+                        .tag("storage", storage)
+                        .tag("method", name)
+                        .register(registry));
+    }
+
+    private Timer timer(String storage, String method, String outcome) {
+        return Timer.builder("filmorate.storage.calls")
+                .description("Время выполнения методов хранилищ")
+                .tag("storage", storage)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * @return число строк в результате или -1, если результат - не набор строк
+     */
+    private static int rowCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+
+    private record Meters(String storage, String method, Timer success, Timer error, DistributionSummary rows) {
+    }
+}
@@ -0,0 +1,331 @@
+package ru.yandex.practicum.filmorate.repository.util;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.entity.EventOperation;
+import ru.yandex.practicum.filmorate.entity.EventType;
+import ru.yandex.practicum.filmorate.repository.EventLogger;
+import ru.yandex.practicum.filmorate.repository.cache.ResourceVersions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.FEED;
+
+/**
+ * Отложенная запись событий ленты. logEvent только ставит событие в ограниченную неблокирующую очередь,
+ * а фоновый поток раз в filmorate.events.write-behind.flush-interval-ms (или сразу по набору batch-size событий)
+ * записывает накопленные события в БД пакетами.
+ * Если очередь заполнена, вызывающий поток ждёт, пока фоновый поток не освободит место.
+ * При остановке приложения очередь дописывается полностью. Если включён журнал (filmorate.events.journal),
+ * событие сначала дописывается в локальный файл и после падения процесса восстанавливается из него при старте.
+ * Лента пользователя читается только после записи всех его принятых событий - см. {@link #awaitWritten}
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.events.write-behind.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class WriteBehindEventLogger implements EventLogger {
+    // Событие пользователя, удалённого до записи события, пропускается: показать его уже некому
+    private static final String INSERT_EVENT_QUERY = """
+            INSERT INTO events (user_id, type_id, operation_id, entity_id, event_timestamp)
+            SELECT ?, ?, ?, ?, ?
+            WHERE EXISTS (SELECT 1 FROM users WHERE user_id = ?)
+            """;
+    private static final long BACKPRESSURE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long AWAIT_WRITTEN_TIMEOUT_MS = 5_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ResourceVersions versions;
+
+    private final Queue<PendingEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentMap<Long, Integer> pendingByUser = new ConcurrentHashMap<>();
+    private final ReentrantLock journalLock = new ReentrantLock();
+    // Ожидание записи на Condition, а не на мониторе: ждущий виртуальный поток освобождает поток-носитель
+    private final ReentrantLock writtenLock = new ReentrantLock();
+    private final Condition written = writtenLock.newCondition();
+
+    @Value("${filmorate.events.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${filmorate.events.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${filmorate.events.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${filmorate.events.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    @Value("${filmorate.events.journal.path:events.journal}")
+    private String journalPath;
+
+    @Value("${filmorate.events.journal.fsync:false}")
+    private boolean journalFsync;
+
+    private EventJournal journal;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (journalEnabled) {
+            journal = new EventJournal(Path.of(journalPath), journalFsync);
+            replayJournal();
+        }
+        running = true;
+        writer = Thread.ofPlatform().name("event-writer").daemon(true).start(this::runWriter);
+        log.info("(Events) Отложенная запись событий запущена. Очередь: {}, пакет: {}, интервал: {} мс, журнал: {}",
+                queueCapacity, batchSize, flushIntervalMs, journalEnabled ? journalPath : "выключен");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+        // События, принятые во время остановки фонового потока
+        drain();
+        if (journal != null) {
+            journal.close();
+        }
+        if (queued.get() == 0) {
+            log.info("(Events) Отложенная запись событий остановлена, все события записаны");
+        } else {
+            log.error("(Events) Отложенная запись событий остановлена, не записано событий: {}", queued.get());
+        }
+    }
+
+    @Override
+    public void logEvent(long userId, EventType type, EventOperation operation, long entityId) {
+        log.debug("Регистрация новой операции '{}' над '{}' от пользователя с id = '{}'. Id субъекта = '{}'",
+                operation, type, userId, entityId);
+        long timestamp = System.currentTimeMillis();
+
+        if (!running) {
+            write(List.of(new PendingEvent(0, userId, type.ordinal(), operation.ordinal(), entityId, timestamp)));
+            versions.bump(FEED, userId);
+            return;
+        }
+        if (journal == null) {
+            enqueue(new PendingEvent(sequence.incrementAndGet(), userId, type.ordinal(), operation.ordinal(),
+                    entityId, timestamp));
+            return;
+        }
+        // С журналом порядок в очереди обязан совпадать с порядком номеров, иначе checkpoint может обогнать
+        // ещё не записанное событие
+        journalLock.lock();
+        try {
+            PendingEvent event = new PendingEvent(sequence.incrementAndGet(), userId, type.ordinal(),
+                    operation.ordinal(), entityId, timestamp);
+            journal.append(event);
+            enqueue(event);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * Дожидается записи в БД всех событий пользователя, принятых до вызова. Ожидание ограничено
+     * {@value #AWAIT_WRITTEN_TIMEOUT_MS} мс, чтобы недоступность БД не подвешивала чтение ленты
+     */
+    @Override
+    public void awaitWritten(long userId) {
+        if (!pendingByUser.containsKey(userId)) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        long nanosLeft = TimeUnit.MILLISECONDS.toNanos(AWAIT_WRITTEN_TIMEOUT_MS);
+        writtenLock.lock();
+        try {
+            while (pendingByUser.containsKey(userId)) {
+                if (nanosLeft <= 0) {
+                    log.warn("(Events) События пользователя с id = {} не записаны за {} мс",
+                            userId, AWAIT_WRITTEN_TIMEOUT_MS);
+                    return;
+                }
+                nanosLeft = written.awaitNanos(nanosLeft);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writtenLock.unlock();
+        }
+    }
+
+    private void enqueue(PendingEvent event) {
+        int size;
+        while (true) {
+            size = queued.get();
+            if (size < queueCapacity) {
+                if (queued.compareAndSet(size, size + 1)) {
+                    break;
+                }
+            } else {
+                // Очередь заполнена: будим фоновый поток и ждём освобождения места
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(BACKPRESSURE_PARK_NANOS);
+            }
+        }
+        pendingByUser.merge(event.userId(), 1, Integer::sum);
+        queue.offer(event);
+        // Новая версия ленты видна сразу: чтение ленты дождётся записи события через awaitWritten
+        versions.bump(FEED, event.userId());
+        if (size + 1 >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void runWriter() {
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (running) {
+            LockSupport.parkNanos(flushIntervalNanos);
+            drain();
+        }
+        drain();
+    }
+
+    private void drain() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            PendingEvent event;
+            while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            if (!writeWithRetry(batch)) {
+                return;
+            }
+            onWritten(batch);
+            batch.clear();
+        }
+        compactJournal();
+    }
+
+    /**
+     * Повторяет запись пакета, пока БД недоступна. Пока пакет не записан, места в очереди не освобождаются,
+     * поэтому вызывающие потоки упираются в ограничение очереди, а не копят события без предела
+     *
+     * @return false, если приложение остановлено раньше, чем пакет удалось записать
+     */
+    private boolean writeWithRetry(List<PendingEvent> batch) {
+        while (true) {
+            try {
+                write(batch);
+                return true;
+            } catch (DataAccessException e) {
+                log.error("(Events) Не удалось записать {} событий: {}", batch.size(), e.getMostSpecificCause().getMessage());
+                if (!running) {
+                    log.error("(Events) Приложение остановлено, {} событий не записаны{}", batch.size(),
+                            journal != null ? " и будут восстановлены из журнала при следующем старте" : "");
+                    return false;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            }
+        }
+    }
+
+    private void write(List<PendingEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_EVENT_QUERY, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PendingEvent event = events.get(i);
+                ps.setLong(1, event.userId());
+                ps.setInt(2, event.typeId());
+                ps.setInt(3, event.operationId());
+                ps.setLong(4, event.entityId());
+                ps.setLong(5, event.timestamp());
+                ps.setLong(6, event.userId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+        log.debug("(Events) Записано {} событий", events.size());
+    }
+
+    private void onWritten(List<PendingEvent> batch) {
+        if (journal != null) {
+            try {
+                journal.writeCheckpoint(batch.get(batch.size() - 1).seq());
+            } catch (IOException e) {
+                log.warn("(Events) Не удалось обновить checkpoint журнала: {}", e.getMessage());
+            }
+        }
+        queued.addAndGet(-batch.size());
+        for (PendingEvent event : batch) {
+            pendingByUser.computeIfPresent(event.userId(), (userId, pending) -> pending == 1 ? null : pending - 1);
+            // Ещё раз после записи: чтение, не дождавшееся события за AWAIT_WRITTEN_TIMEOUT_MS, не останется под новым ETag
+            versions.bump(FEED, event.userId());
+        }
+        writtenLock.lock();
+        try {
+            written.signalAll();
+        } finally {
+            writtenLock.unlock();
+        }
+    }
+
+    /**
+     * Очищает журнал, когда все события из него записаны. Если журнал сейчас занят производителем,
+     * очистка откладывается до следующего сброса
+     */
+    private void compactJournal() {
+        if (journal == null || queued.get() > 0 || !journalLock.tryLock()) {
+            return;
+        }
+        try {
+            if (queued.get() == 0 && journal.needsCompaction()) {
+                journal.truncate();
+                log.debug("(Events) Журнал событий очищен");
+            }
+        } catch (IOException e) {
+            log.warn("(Events) Не удалось очистить журнал событий: {}", e.getMessage());
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        long checkpoint = journal.readCheckpoint();
+        List<PendingEvent> events = journal.readAfter(checkpoint);
+        long lastSeq = checkpoint;
+        for (int from = 0; from < events.size(); from += batchSize) {
+            List<PendingEvent> batch = events.subList(from, Math.min(events.size(), from + batchSize));
+            write(batch);
+            lastSeq = batch.get(batch.size() - 1).seq();
+            journal.writeCheckpoint(lastSeq);
+        }
+        journal.truncate();
+        sequence.set(lastSeq);
+        log.info("(Events) Из журнала восстановлено {} незаписанных событий", events.size());
+    }
+}
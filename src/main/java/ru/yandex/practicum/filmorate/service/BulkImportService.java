@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.entity.*;
+import ru.yandex.practicum.filmorate.exception.InvalidDataRequestException;
+import ru.yandex.practicum.filmorate.repository.DirectorStorage;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityLeaderboard;
+import ru.yandex.practicum.filmorate.repository.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.validators.FilmValidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Массовый импорт фильмов и пользователей. Входной JSON массив разбирается потоково, по одному элементу,
+ * поэтому в памяти никогда не держится весь массив - только текущий пакет на запись. Ограничение касается
+ * только записываемых строк: результат импорта содержит {@link BulkItemResult} на каждый элемент массива,
+ * поэтому ответ растёт линейно с размером массива.
+ * Каждый элемент проверяется теми же ограничениями {@link Marker.OnCreate}, что и при одиночном создании;
+ * прошедшие проверку элементы записываются пакетами по filmorate.bulk.batch-size штук, каждый пакет -
+ * в своей транзакции. Если пакет не записался, его элементы записываются по одному.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkImportService {
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final DirectorStorage directorStorage;
+    private final FilmValidator filmValidator;
+    private final FilmPopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
+
+    @Value("${filmorate.bulk.batch-size:1000}")
+    private int batchSize;
+
+    public BulkImportResult importFilms(InputStream body) throws IOException {
+        log.info("(NEW) Получен запрос на массовый импорт фильмов");
+
+        // Результаты проверки режиссёров запоминаются на время импорта, чтобы не проверять один id дважды
+        Map<Long, Boolean> knownDirectors = new HashMap<>();
+        BulkImportResult result = importItems(body, Film.class,
+                film -> checkFilm(film, knownDirectors),
+                films -> {
+                    List<Film> savedFilms = filmStorage.saveFilms(films);
+                    savedFilms.forEach(leaderboard::onFilmSaved);
+                    savedFilms.forEach(searchIndex::onFilmSaved);
+                    return savedFilms.stream().map(Film::getId).toList();
+                });
+
+        log.info("(END) Массовый импорт фильмов завершён. Создано: {}, с ошибками: {}",
+                result.getCreated(), result.getFailed());
+        return result;
+    }
+
+    public BulkImportResult importUsers(InputStream body) throws IOException {
+        log.info("(NEW) Получен запрос на массовый импорт пользователей");
+
+        BulkImportResult result = importItems(body, User.class,
+                this::checkUser,
+                users -> userStorage.saveUsers(users).stream().map(User::getId).toList());
+
+        log.info("(END) Массовый импорт пользователей завершён. Создано: {}, с ошибками: {}",
+                result.getCreated(), result.getFailed());
+        return result;
+    }
+
+    private <T> BulkImportResult importItems(InputStream body,
+                                             Class<T> type,
+                                             Function<T, List<String>> check,
+                                             Function<List<T>, List<Long>> save) throws IOException {
+        List<BulkItemResult> results = new ArrayList<>();
+        List<T> batch = new ArrayList<>(batchSize);
+        List<Integer> batchIndexes = new ArrayList<>(batchSize);
+        String error = null;
+        int index = 0;
+
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidDataRequestException("Тело запроса должно быть JSON массивом");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new InvalidDataRequestException("JSON массив не завершён");
+                }
+                // Читаем ровно один элемент массива; ошибка маппинга не ломает разбор следующих элементов
+                JsonNode node = objectMapper.readTree(parser);
+                List<String> errors;
+                T item = null;
+                try {
+                    item = objectMapper.treeToValue(node, type);
+                    errors = check.apply(item);
+                } catch (JsonProcessingException e) {
+                    errors = List.of("Некорректный элемент: " + e.getOriginalMessage());
+                }
+
+                if (errors.isEmpty()) {
+                    batch.add(item);
+                    batchIndexes.add(index);
+                    if (batch.size() >= batchSize) {
+                        flush(batch, batchIndexes, save, results);
+                    }
+                } else {
+                    results.add(BulkItemResult.failed(index, errors));
+                }
+                index++;
+            }
+        } catch (JsonProcessingException e) {
+            error = String.format("Разбор JSON прерван на элементе %d: %s", index, e.getOriginalMessage());
+            log.warn("(Bulk) {}", error);
+            if (index == 0 && batch.isEmpty() && results.isEmpty()) {
+                throw new InvalidDataRequestException(error);
+            }
+        }
+        flush(batch, batchIndexes, save, results);
+
+        results.sort(Comparator.comparingInt(BulkItemResult::getIndex));
+        int created = (int) results.stream().filter(r -> r.getStatus() == BulkItemResult.Status.CREATED).count();
+        return BulkImportResult.builder()
+                .total(results.size())
+                .created(created)
+                .failed(results.size() - created)
+                .error(error)
+                .items(results)
+                .build();
+    }
+
+    private <T> void flush(List<T> batch,
+                           List<Integer> batchIndexes,
+                           Function<List<T>, List<Long>> save,
+                           List<BulkItemResult> results) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        log.debug("(Bulk) Запись пакета из {} элементов", batch.size());
+        try {
+            List<Long> ids = save.apply(batch);
+            for (int i = 0; i < ids.size(); i++) {
+                results.add(BulkItemResult.created(batchIndexes.get(i), ids.get(i)));
+            }
+        } catch (DataAccessException e) {
+            log.warn("(Bulk) Пакет из {} элементов не записан: {}. Элементы пакета записываются по одному",
+                    batch.size(), e.getMostSpecificCause().getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                saveItem(batch.get(i), batchIndexes.get(i), save, results);
+            }
+        }
+        batch.clear();
+        batchIndexes.clear();
+    }
+
+    /**
+     * Запись одного элемента после ошибки записи пакета: транзакция пакета откатывается целиком,
+     * поэтому элементы пакета повторно записываются по одному, и ошибку получают только те, что её вызвали
+     */
+    private <T> void saveItem(T item,
+                              int index,
+                              Function<List<T>, List<Long>> save,
+                              List<BulkItemResult> results) {
+        try {
+            results.add(BulkItemResult.created(index, save.apply(List.of(item)).get(0)));
+        } catch (DataAccessException e) {
+            log.debug("(Bulk) Элемент {} не записан: {}", index, e.getMostSpecificCause().getMessage());
+            results.add(BulkItemResult.failed(index,
+                    List.of("Ошибка записи: " + e.getMostSpecificCause().getMessage())));
+        }
+    }
+
+    private List<String> checkFilm(Film film, Map<Long, Boolean> knownDirectors) {
+        List<String> errors = getViolations(film);
+        if (!errors.isEmpty()) {
+            return errors;
+        }
+        try {
+            filmValidator.checkFilmGenresOnExist(film.getGenres());
+            filmValidator.checkFilmMpaRatingOnExist(film.getMpa());
+        } catch (InvalidDataRequestException e) {
+            return List.of(e.getMessage());
+        }
+        for (Director director : film.getDirectors()) {
+            Long directorId = director.getId();
+            if (directorId == null || !knownDirectors.computeIfAbsent(directorId, directorStorage::existsById)) {
+                return List.of("Режиссёр не найден. Id = " + directorId);
+            }
+        }
+        return errors;
+    }
+
+    private List<String> checkUser(User user) {
+        List<String> errors = getViolations(user);
+        if (errors.isEmpty() && (user.getName() == null || user.getName().isBlank())) {
+            user.setName(user.getLogin());
+        }
+        return errors;
+    }
+
+    private <T> List<String> getViolations(T item) {
+        Set<ConstraintViolation<T>> violations;
+        try {
+            violations = validator.validate(item, Marker.OnCreate.class);
+        } catch (ValidationException e) {
+            // Сбой самого валидатора (например, на незаполненном поле) относится только к этому элементу
+            return List.of("Ошибка валидации: " + e.getMessage());
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .toList();
+    }
+}
@@ -5,13 +5,20 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.entity.CursorPage;
 import ru.yandex.practicum.filmorate.entity.Director;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.repository.DirectorStorage;
+import ru.yandex.practicum.filmorate.repository.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.repository.index.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.service.validators.DirectorValidator;
+import ru.yandex.practicum.filmorate.service.validators.PageValidator;
 
 import java.util.List;
 
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.DIRECTOR;
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.FILM;
+
 @Service
 @Slf4j
 @FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
@@ -19,6 +26,9 @@ import java.util.List;
 public class DirectorService {
     DirectorStorage directorStorage;
     DirectorValidator directorValidator;
+    PageValidator pageValidator;
+    FilmSearchIndex searchIndex;
+    ResourceVersions versions;
 
     public Director getDirectorById(long directorId) {
         log.info("(NEW) Получен запрос на получение режиссера по id = '{}'", directorId);
@@ -34,6 +44,8 @@ public class DirectorService {
         log.info("(NEW) Получен запрос на создание режиссера '{}'", director.getName());
 
         Director createdDirector = directorStorage.saveDirector(director);
+        searchIndex.onDirectorSaved(createdDirector);
+        versions.bump(DIRECTOR, createdDirector.getId());
         log.info("(END) Режиссёр '{}' был успешно создан: {}", director.getName(), createdDirector);
         return createdDirector;
     }
@@ -46,12 +58,29 @@ public class DirectorService {
         return directors;
     }
 
+    public CursorPage<Director> getDirectorsPage(Long after, Integer limit) {
+        log.info("(NEW) Получен запрос на получение страницы режиссеров. after = {}, limit = {}", after, limit);
+
+        long afterId = pageValidator.checkPageCursor(after);
+        int pageSize = pageValidator.checkPageLimit(limit);
+
+        CursorPage<Director> page = CursorPage.of(directorStorage.getDirectorsPage(afterId, pageSize + 1),
+                pageSize, Director::getId);
+        log.info("(END) Страница режиссеров была успешно получена. Количество: {}, следующая страница после id = {}",
+                page.getItems().size(), page.getNextCursor());
+        return page;
+    }
+
     public void removeDirector(long directorId) {
         log.info("(NEW) Получен запрос на удаление режиссера с id = '{}'", directorId);
 
         directorValidator.checkDirectorOnExists(directorId);
 
         directorStorage.removeDirector(directorId);
+        searchIndex.onDirectorDeleted(directorId);
+        // Режиссёр входит в ответы фильмов
+        versions.bump(DIRECTOR, directorId);
+        versions.bumpAll(FILM);
         log.info("(END) Режиссёр с id = '{}' был успешно удалён", directorId);
     }
 
@@ -61,6 +90,9 @@ public class DirectorService {
         directorValidator.checkDirectorOnExists(director.getId());
 
         Director updatedDirector = directorStorage.updateDirector(director);
+        searchIndex.onDirectorSaved(updatedDirector);
+        versions.bump(DIRECTOR, updatedDirector.getId());
+        versions.bumpAll(FILM);
         log.info("(END) Режиссёр с id = '{}' был успешно обновлён: {}", director.getId(), updatedDirector);
         return updatedDirector;
     }
@@ -3,10 +3,15 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.entity.CursorPage;
 import ru.yandex.practicum.filmorate.entity.Event;
+import ru.yandex.practicum.filmorate.repository.EventLogger;
 import ru.yandex.practicum.filmorate.repository.EventStorage;
+import ru.yandex.practicum.filmorate.service.validators.PageValidator;
 import ru.yandex.practicum.filmorate.service.validators.UserValidator;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Service
@@ -14,17 +19,47 @@ import java.util.List;
 @Slf4j
 public class EventService {
     private final EventStorage eventStorage;
+    private final EventLogger eventLogger;
     private final UserValidator userValidator;
+    private final PageValidator pageValidator;
 
     public List<Event> getUserEvents(long userId) {
         log.info("(NEW) Получен запрос на получение ленты событий пользователя '{}'",
                 userId);
 
         userValidator.checkUserOnExist(userId);
+        eventLogger.awaitWritten(userId);
 
         List<Event> foundEvents = eventStorage.getUserEvents(userId);
         log.info("(END) У пользователя c id = {} было найдено '{}' событий", userId, foundEvents.size());
 
         return foundEvents;
     }
+
+    /**
+     * Страница ленты: limit самых новых событий с id меньше before (без before - самые новые события).
+     * Внутри страницы события идут в том же порядке, что и в полной ленте - по возрастанию id.
+     * Курсор следующей страницы - id самого старого события страницы
+     */
+    public CursorPage<Event> getUserEventsPage(long userId, Long before, Integer limit) {
+        log.info("(NEW) Получен запрос на получение страницы ленты событий пользователя '{}'. before = {}, limit = {}",
+                userId, before, limit);
+
+        userValidator.checkUserOnExist(userId);
+        long beforeId = before == null ? Long.MAX_VALUE : pageValidator.checkPageCursor(before);
+        int pageSize = pageValidator.checkPageLimit(limit);
+        eventLogger.awaitWritten(userId);
+
+        CursorPage<Event> newestFirst = CursorPage.of(eventStorage.getUserEventsBefore(userId, beforeId, pageSize + 1),
+                pageSize, Event::getId);
+        List<Event> events = new ArrayList<>(newestFirst.getItems());
+        Collections.reverse(events);
+
+        log.info("(END) У пользователя c id = {} получено '{}' событий, следующая страница до события {}",
+                userId, events.size(), newestFirst.getNextCursor());
+        return CursorPage.<Event>builder()
+                .items(events)
+                .nextCursor(newestFirst.getNextCursor())
+                .build();
+    }
 }
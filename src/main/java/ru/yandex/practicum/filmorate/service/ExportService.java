@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.entity.User;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Выгрузка всего каталога в формате NDJSON: по одному JSON объекту на строку.
+ * Записи читаются из БД курсором порциями по filmorate.export.chunk-size и сразу пишутся в ответ,
+ * поэтому расход памяти не зависит от размера таблиц
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportService {
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final ObjectMapper objectMapper;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+
+    @Value("${filmorate.export.chunk-size:500}")
+    private int chunkSize;
+
+    public void exportFilms(OutputStream out) throws IOException {
+        log.info("(NEW) Получен запрос на выгрузку всех фильмов");
+
+        long exported = this.<Film>export(out, consumer -> filmStorage.exportFilms(chunkSize, consumer));
+
+        log.info("(END) Выгрузка фильмов завершена. Выгружено: {}", exported);
+    }
+
+    public void exportUsers(OutputStream out) throws IOException {
+        log.info("(NEW) Получен запрос на выгрузку всех пользователей");
+
+        long exported = this.<User>export(out, consumer -> userStorage.exportUsers(chunkSize, consumer));
+
+        log.info("(END) Выгрузка пользователей завершена. Выгружено: {}", exported);
+    }
+
+    private <T> long export(OutputStream out, Consumer<Consumer<List<T>>> source) throws IOException {
+        long[] exported = {0};
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            // Записи разделяются только переводом строки, без пробела по умолчанию между корневыми значениями
+            generator.setRootValueSeparator(null);
+            try {
+                source.accept(chunk -> {
+                    try {
+                        for (T item : chunk) {
+                            writer.writeValue(generator, item);
+                            generator.writeRaw('\n');
+                        }
+                        // Каждая порция отправляется клиенту сразу, не накапливаясь в буфере
+                        generator.flush();
+                        exported[0] += chunk.size();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                log.warn("(Export) Выгрузка прервана после {} записей: {}", exported[0], e.getCause().getMessage());
+                throw e.getCause();
+            }
+        }
+        return exported[0];
+    }
+}
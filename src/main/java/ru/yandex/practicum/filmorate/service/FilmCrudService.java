@@ -3,17 +3,25 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.entity.CursorPage;
 import ru.yandex.practicum.filmorate.entity.Film;
 import ru.yandex.practicum.filmorate.exception.InvalidDataRequestException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityLeaderboard;
+import ru.yandex.practicum.filmorate.repository.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.repository.index.LikeMatrix;
 import ru.yandex.practicum.filmorate.service.validators.DirectorValidator;
 import ru.yandex.practicum.filmorate.service.validators.FilmValidator;
+import ru.yandex.practicum.filmorate.service.validators.PageValidator;
 import ru.yandex.practicum.filmorate.service.validators.UserValidator;
 
 import java.util.Collection;
 import java.util.List;
 
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.FILM;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -22,6 +30,11 @@ public class FilmCrudService {
     private final FilmValidator filmValidator;
     private final UserValidator userValidator;
     private final DirectorValidator directorValidator;
+    private final PageValidator pageValidator;
+    private final FilmPopularityLeaderboard leaderboard;
+    private final LikeMatrix likeMatrix;
+    private final FilmSearchIndex searchIndex;
+    private final ResourceVersions versions;
 
     public Film getFilmById(long filmId) {
         log.info("(NEW) Получен запрос на получение фильма с ID = {}.", filmId);
@@ -41,13 +54,28 @@ public class FilmCrudService {
         return films;
     }
 
+    public CursorPage<Film> getPage(Long after, Integer limit) {
+        log.info("(NEW) Получен запрос на получение страницы фильмов. after = {}, limit = {}", after, limit);
+
+        long afterId = pageValidator.checkPageCursor(after);
+        int pageSize = pageValidator.checkPageLimit(limit);
+
+        CursorPage<Film> page = CursorPage.of(filmRepo.getFilmsPage(afterId, pageSize + 1), pageSize, Film::getId);
+        log.info("(END) Страница фильмов получена. Количество: {}, следующая страница после id = {}",
+                page.getItems().size(), page.getNextCursor());
+        return page;
+    }
+
     public Film create(Film film) {
         log.info("(NEW) Получен запрос на создание нового фильма '{}'", film.getName());
 
         filmValidator.checkFilmGenresOnExist(film.getGenres());
         filmValidator.checkFilmMpaRatingOnExist(film.getMpa());
+        directorValidator.checkDirectorsOnExists(film.getDirectors());
 
         Film createdFilm = filmRepo.saveFilm(film);
+        leaderboard.onFilmSaved(createdFilm);
+        searchIndex.onFilmSaved(createdFilm);
         log.info("(END) Фильм '{}' был успешно создан: {}", film.getName(), createdFilm);
         return createdFilm;
     }
@@ -56,9 +84,13 @@ public class FilmCrudService {
         log.info("(NEW) Получен запрос на обновление фильма с ID = {}", film.getId());
 
         filmValidator.checkFilmGenresOnExist(film.getGenres());
+        directorValidator.checkDirectorsOnExists(film.getDirectors());
         filmValidator.checkFilmOnExist(film.getId());
 
         Film updatedFilm = filmRepo.updateFilm(film);
+        leaderboard.onFilmSaved(updatedFilm);
+        searchIndex.onFilmSaved(updatedFilm);
+        versions.bump(FILM, updatedFilm.getId());
         log.info("(END) Фильм с ID = {} был успешно обновлён: {}", film.getId(), updatedFilm);
         return updatedFilm;
     }
@@ -66,10 +98,10 @@ public class FilmCrudService {
     public List<Film> getCommonFilms(long userId, long friendId) {
         log.info("(NEW) Получен запрос на получение общих фильмов пользователей userId = '{}', friendId = '{}'", userId, friendId);
 
-        userValidator.checkUserOnExist(userId);
-        userValidator.checkUserOnExist(friendId);
+        userValidator.checkUsersOnExist(userId, friendId);
 
-        List<Film> commonFilms = filmRepo.getCommonFilms(userId, friendId);
+        List<Long> commonFilmIds = leaderboard.sortByPopularity(likeMatrix.getCommonFilmIds(userId, friendId));
+        List<Film> commonFilms = filmRepo.getListOfFilmsById(commonFilmIds);
         log.info("(END) Общие фильмы пользователей userId = '{}', friendId = '{}' успешно получены. " +
                 "Количество фильмов: {}", userId, friendId, commonFilms.size());
         return commonFilms;
@@ -102,6 +134,10 @@ public class FilmCrudService {
     public void deleteFilmById(long filmId) {
         log.info("(NEW) Получен запрос на удаление фильма с id {} ", filmId);
         if (filmRepo.deleteFilmById(filmId)) {
+            leaderboard.onFilmDeleted(filmId);
+            likeMatrix.removeFilm(filmId);
+            searchIndex.onFilmDeleted(filmId);
+            versions.bump(FILM, filmId);
             log.info("(END) Фильм с ID = {} успешно удалён.", filmId);
         } else {
             log.info("(END) Фильм с ID = {} не был найден/не удалён", filmId);
@@ -6,10 +6,16 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.entity.Film;
 import ru.yandex.practicum.filmorate.repository.EventLogger;
 import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityLeaderboard;
+import ru.yandex.practicum.filmorate.repository.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.repository.index.LikeMatrix;
 import ru.yandex.practicum.filmorate.service.validators.FilmValidator;
+import ru.yandex.practicum.filmorate.service.validators.PageValidator;
 import ru.yandex.practicum.filmorate.service.validators.UserValidator;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import static ru.yandex.practicum.filmorate.entity.EventOperation.ADD;
 import static ru.yandex.practicum.filmorate.entity.EventOperation.REMOVE;
@@ -23,6 +29,10 @@ public class FilmLikeService {
     private final FilmValidator filmValidator;
     private final UserValidator userValidator;
     private final EventLogger eventLogger;
+    private final FilmPopularityLeaderboard leaderboard;
+    private final LikeMatrix likeMatrix;
+    private final FilmSearchIndex searchIndex;
+    private final PageValidator pageValidator;
 
     public void addLikeToFilm(long filmId, long userId) {
         log.info("(NEW) Получен запрос на добавление лайка к фильму. userId='{}', filmId='{}'", userId, filmId);
@@ -31,11 +41,13 @@ public class FilmLikeService {
         userValidator.checkUserOnExist(userId);
 
         if (filmStorage.saveLikeToFilm(filmId, userId)) {
-            eventLogger.logEvent(userId, LIKE, ADD, filmId);
-            log.info("(END) Лайк успешно добавлен. userId='{}', filmId='{}'", userId, filmId);
+            leaderboard.onLikeAdded(filmId);
+            likeMatrix.addLike(userId, filmId);
         } else {
-            log.warn("(END) Не удалось добавить лайк. userId='{}', filmId='{}'", userId, filmId);
+            log.debug("Пользователь userId='{}' уже ставил лайк фильму filmId='{}'", userId, filmId);
         }
+        eventLogger.logEvent(userId, LIKE, ADD, filmId);
+        log.info("(END) Лайк успешно добавлен. userId='{}', filmId='{}'", userId, filmId);
     }
 
     public void removeLikeFromFilm(long filmId, long userId) {
@@ -45,6 +57,8 @@ public class FilmLikeService {
         userValidator.checkUserOnExist(userId);
 
         if (filmStorage.deleteLikeFromFilm(filmId, userId)) {
+            leaderboard.onLikeRemoved(filmId);
+            likeMatrix.removeLike(userId, filmId);
             eventLogger.logEvent(userId, LIKE, REMOVE, filmId);
             log.info("(END) Лайк успешно удален. userId='{}', filmId='{}'", userId, filmId);
         } else {
@@ -52,20 +66,44 @@ public class FilmLikeService {
         }
     }
 
+    /**
+     * Проверка по матрице лайков, без обращения к БД: для несуществующих фильма или пользователя - false
+     */
+    public boolean hasLike(long filmId, long userId) {
+        log.info("(NEW) Получен запрос на проверку лайка. userId='{}', filmId='{}'", userId, filmId);
+
+        boolean liked = likeMatrix.hasLike(userId, filmId);
+        log.info("(END) Лайк пользователя userId='{}' фильму filmId='{}': {}", userId, filmId, liked);
+        return liked;
+    }
+
+    /**
+     * Проверка лайков пользователя для нескольких фильмов по матрице лайков, без обращения к БД
+     */
+    public Map<Long, Boolean> hasLikes(long userId, List<Long> filmIds) {
+        log.info("(NEW) Получен запрос на проверку лайков. userId='{}', фильмов: {}", userId, filmIds.size());
+        pageValidator.checkIdsCount(filmIds);
+
+        Map<Long, Boolean> likes = likeMatrix.hasLikes(userId, filmIds);
+        log.info("(END) Проверены лайки пользователя userId='{}' для {} фильмов", userId, likes.size());
+        return likes;
+    }
+
     public Collection<Film> getMostLikedFilms(Integer count, Integer genreId, Integer year) {
         if (genreId != null && year != null) {
             log.info("(NEW) Получен запрос на получение {} самых залайканных фильмов, отфильтрованных по жанру {} и году {}", count, genreId, year);
-            Collection<Film> films = filmStorage.getMostLikedFilmsByGenreAndYear(count, genreId, year);
+            Collection<Film> films = filmStorage.getListOfFilmsById(leaderboard.getTopFilmIdsByGenreAndYear(count, genreId, year));
             log.info("(END) Возвращено {} фильмов, отфильтрованных по жанру и году", films.size());
             return films;
         } else if (genreId == null && year == null) {
             log.info("(NEW) Получен запрос на получение {} самых залайканных фильмов", count);
-            Collection<Film> films = filmStorage.getMostLikedFilms(count);
+            Collection<Film> films = filmStorage.getListOfFilmsById(leaderboard.getTopFilmIds(count));
             log.info("(END) Возвращено {} самых залайканных фильмов", films.size());
             return films;
         } else {
             log.info("(NEW) Получен запрос на получение {} самых залайканных фильмов, отфильтрованных по году '{}' или жанру '{}'", count, year, genreId);
-            Collection<Film> films = filmStorage.getMostLikedFilmsByGenreOrYear(count, genreId, year);
+            Collection<Film> films = filmStorage.getListOfFilmsById(leaderboard.getTopFilmIdsByGenreOrYear(count,
+                    genreId == null ? null : genreId.longValue(), year));
             log.info("(END) Возвращено {} фильмов, отфильтрованных по одному из параметров", films.size());
             return films;
         }
@@ -76,19 +114,19 @@ public class FilmLikeService {
         switch (by) {
             case "title" -> {
                 log.info("(NEW) Получен запрос на поиск фильмов по названию/части названия: {}", text);
-                Collection<Film> films = filmStorage.getFilmsByQuery(text, null);
+                Collection<Film> films = filmStorage.getListOfFilmsById(searchIndex.search(text, true, false));
                 log.info("(END) Найдено {} фильмов по названию/части названия", films.size());
                 return films;
             }
             case "director" -> {
                 log.info("(NEW) Получен запрос на поиск фильмов по режиссёру: {}", text);
-                Collection<Film> films = filmStorage.getFilmsByQuery(null, text);
+                Collection<Film> films = filmStorage.getListOfFilmsById(searchIndex.search(text, false, true));
                 log.info("(END) Найдено {} фильмов по режиссёру", films.size());
                 return films;
             }
             default -> {
                 log.info("(NEW) Получен запрос на поиск фильмов по названию/части названия и режиссёру: {}", text);
-                Collection<Film> films = filmStorage.getFilmsByQuery(text, text);
+                Collection<Film> films = filmStorage.getListOfFilmsById(searchIndex.search(text, true, true));
                 log.info("(END) Найдено {} фильмов по обоим параметрам", films.size());
                 return films;
             }
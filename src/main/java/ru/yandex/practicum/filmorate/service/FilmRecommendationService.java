@@ -2,81 +2,40 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.entity.Film;
 import ru.yandex.practicum.filmorate.repository.FilmStorage;
-import ru.yandex.practicum.filmorate.repository.LikeStorage;
+import ru.yandex.practicum.filmorate.repository.index.LikeMatrix;
 import ru.yandex.practicum.filmorate.service.validators.UserValidator;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FilmRecommendationService {
-    private final LikeStorage likeStorage;
+    private final LikeMatrix likeMatrix;
     private final UserValidator userValidator;
     private final FilmStorage filmStorage;
 
+    @Value("${filmorate.recommendations.neighbours:1}")
+    private int neighbours;
+
     public List<Film> getRecommendedFilms(Long userId) {
         userValidator.checkUserOnExist(userId);
 
         log.info("(NEW) Получение списка рекомендованных фильмов для пользователя с id = {}", userId);
 
-        List<Long> recommendedFilmsIds = getListOfFilmsToRecommend(userId);
+        List<LikeMatrix.ScoredFilm> scoredFilms = likeMatrix.recommend(userId, neighbours);
+        log.debug("(Service) Рекомендации для пользователя с id = {} (id фильма, оценка): {}", userId, scoredFilms);
 
-        List<Film> recommendedFilms = filmStorage.getListOfFilmsById(recommendedFilmsIds);
+        List<Film> recommendedFilms = filmStorage.getListOfFilmsById(scoredFilms.stream()
+                .map(LikeMatrix.ScoredFilm::filmId)
+                .toList());
 
         log.info("(END) Возвращено {} рекомендованных фильмов для пользователя с id = {}", recommendedFilms.size(), userId);
 
         return recommendedFilms;
     }
-
-    private List<Long> getUsersWithSimilarLikesToFilms(List<Long> likedFilmsId, Long userId) {
-        log.debug("(Service) Получение списка пользователей с похожими лайками для пользователя с id = {}", userId);
-
-        Map<Long, ArrayList<Long>> mapOfFilmsToUserLists = likeStorage.getMapOfLikesByPrimaryKey(likedFilmsId, "film_id");
-        List<Long> listOfSimilarLikes = new ArrayList<>();
-
-        for (Map.Entry<Long, ArrayList<Long>> filmLikes : mapOfFilmsToUserLists.entrySet()) {
-            listOfSimilarLikes.addAll(filmLikes.getValue());
-        }
-
-        Map<Long, Long> counter = listOfSimilarLikes.stream()
-                .collect(Collectors.groupingBy(e -> e, Collectors.counting()));
-
-        int amountOfUsers = 1;
-        List<Long> similarUsers = counter.entrySet().stream()
-                .filter(entry -> !entry.getKey().equals(userId))
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .limit(amountOfUsers)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-
-        log.debug("(Service) Найдены пользователи с похожими лайками: {}", similarUsers);
-        return similarUsers;
-    }
-
-    private List<Long> getListOfFilmsToRecommend(Long userId) {
-        log.debug("(Service) Получение списка фильмов для рекомендации для пользователя с id = {}", userId);
-
-        List<Long> likedFilmsId = likeStorage.getMapOfLikesByPrimaryKey(Collections.singletonList(userId), "user_id")
-                .get(userId);
-
-        log.debug("(Service) Пользователь с id = {} лайкнул фильмы: {}", userId, likedFilmsId);
-
-        List<Long> similarUsers = getUsersWithSimilarLikesToFilms(likedFilmsId, userId);
-
-        Map<Long, ArrayList<Long>> similarUsersLikes = likeStorage.getMapOfLikesByPrimaryKey(similarUsers, "user_id");
-
-        List<Long> recommendedFilmsIds = similarUsersLikes.values().stream()
-                .flatMap(List::stream)
-                .collect(Collectors.toSet()).stream()
-                .filter(filmId -> !likedFilmsId.contains(filmId))
-                .collect(Collectors.toList());
-
-        log.debug("(Service) Список рекомендованных фильмов (id): {}", recommendedFilmsIds);
-        return recommendedFilmsIds;
-    }
-}
\ No newline at end of file
+}
@@ -14,7 +14,6 @@ import ru.yandex.practicum.filmorate.service.validators.UserValidator;
 import java.util.List;
 import java.util.Optional;
 
-import static java.util.Comparator.comparing;
 import static ru.yandex.practicum.filmorate.entity.EventOperation.*;
 import static ru.yandex.practicum.filmorate.entity.EventType.REVIEW;
 
@@ -82,9 +81,7 @@ public class FilmReviewService {
             return reviewStorage.getReviewsByFilmId(filmId.get(), limit);
         } else {
             log.info("(NEW) Получение отзывов ко всем фильмам в количестве {}", limit);
-            return reviewStorage.getAllReviews(limit).stream()
-                    .sorted(comparing(Review::getUseful).reversed())
-                    .toList();
+            return reviewStorage.getAllReviews(limit);
         }
     }
 
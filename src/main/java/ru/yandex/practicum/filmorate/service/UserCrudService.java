@@ -3,12 +3,23 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.entity.CursorPage;
 import ru.yandex.practicum.filmorate.entity.User;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.repository.LikeStorage;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
+import ru.yandex.practicum.filmorate.repository.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityLeaderboard;
+import ru.yandex.practicum.filmorate.repository.index.FriendGraph;
+import ru.yandex.practicum.filmorate.repository.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.service.validators.PageValidator;
 import ru.yandex.practicum.filmorate.service.validators.UserValidator;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+
+import static ru.yandex.practicum.filmorate.repository.cache.ResourceVersions.Resource.FEED;
 
 @Service
 @RequiredArgsConstructor
@@ -16,6 +27,12 @@ import java.util.Collection;
 public class UserCrudService {
     private final UserStorage userStorage;
     private final UserValidator userValidator;
+    private final PageValidator pageValidator;
+    private final LikeStorage likeStorage;
+    private final FilmPopularityLeaderboard leaderboard;
+    private final LikeMatrix likeMatrix;
+    private final FriendGraph friendGraph;
+    private final ResourceVersions versions;
 
     public Collection<User> getAll() {
         log.info("(NEW) Получен запрос на получение всех пользователей");
@@ -24,6 +41,18 @@ public class UserCrudService {
         return users;
     }
 
+    public CursorPage<User> getPage(Long after, Integer limit) {
+        log.info("(NEW) Получен запрос на получение страницы пользователей. after = {}, limit = {}", after, limit);
+
+        long afterId = pageValidator.checkPageCursor(after);
+        int pageSize = pageValidator.checkPageLimit(limit);
+
+        CursorPage<User> page = CursorPage.of(userStorage.getUsersPage(afterId, pageSize + 1), pageSize, User::getId);
+        log.info("(END) Возвращено {} пользователей, следующая страница после id = {}",
+                page.getItems().size(), page.getNextCursor());
+        return page;
+    }
+
     public User createUser(User user) {
         log.info("(NEW) Получен запрос на создание пользователя с логином = '{}'", user.getLogin());
 
@@ -49,9 +78,9 @@ public class UserCrudService {
 
     public User getUserById(long userId) {
         log.info("(NEW) Получен запрос на получение пользователя с ID = '{}'", userId);
-        User user = userStorage.getUserById(userId).orElseThrow(
-                () -> new NotFoundException("(END) Пользователь не найден. Id = " + userId)
-        );
+        User user = userStorage.getUserById(userId)
+                .map(found -> found.toBuilder().friendsIds(friendGraph.getFriendIds(userId)).build())
+                .orElseThrow(() -> new NotFoundException("(END) Пользователь не найден. Id = " + userId));
         log.info("(END) Пользователь с id '{}' найден", userId);
         return user;
     }
@@ -60,7 +89,14 @@ public class UserCrudService {
         log.info("(NEW) Получен запрос на удаление пользователя с id '{}'", userId);
 
         userValidator.checkUserOnExist(userId);
+        // Лайки пользователя удаляются вместе с ним, поэтому запоминаем фильмы для обновления рейтинга
+        List<Long> likedFilmsIds = likeStorage.getMapOfLikesByPrimaryKey(List.of(userId), "user_id")
+                .getOrDefault(userId, new ArrayList<>());
         userStorage.deleteUserById(userId);
+        likedFilmsIds.forEach(leaderboard::onLikeRemoved);
+        likeMatrix.removeUser(userId);
+        friendGraph.removeUser(userId);
+        versions.bump(FEED, userId);
 
         log.info("(END) Пользователь с id '{}' удален", userId);
     }
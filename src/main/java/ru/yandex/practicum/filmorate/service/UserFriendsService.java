@@ -6,9 +6,13 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.entity.User;
 import ru.yandex.practicum.filmorate.repository.EventLogger;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
+import ru.yandex.practicum.filmorate.repository.index.FriendGraph;
+import ru.yandex.practicum.filmorate.service.validators.PageValidator;
 import ru.yandex.practicum.filmorate.service.validators.UserValidator;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
 
 import static ru.yandex.practicum.filmorate.entity.EventOperation.ADD;
 import static ru.yandex.practicum.filmorate.entity.EventOperation.REMOVE;
@@ -21,14 +25,16 @@ public class UserFriendsService {
     private final UserStorage userStorage;
     private final EventLogger eventLogger;
     private final UserValidator userValidator;
+    private final FriendGraph friendGraph;
+    private final PageValidator pageValidator;
 
     public void addFriend(long userId, long friendId) {
         log.info("(NEW) Получен запрос от пользователя '{}' на добавление в друзья пользователя '{}'",
                 userId, friendId);
-        userValidator.checkUserOnExist(userId);
-        userValidator.checkUserOnExist(friendId);
+        userValidator.checkUsersOnExist(userId, friendId);
 
         userStorage.saveFriendToUser(friendId, userId);
+        friendGraph.addFriend(userId, friendId);
         eventLogger.logEvent(userId, FRIEND, ADD, friendId);
         log.info("(END) Пользователь '{}' успешно добавил пользователя '{}' в друзья.", userId, friendId);
     }
@@ -37,10 +43,10 @@ public class UserFriendsService {
         log.info("(NEW) Получен запрос от пользователя '{}' на удаление из друзей пользователя '{}'",
                 userId, friendId);
 
-        userValidator.checkUserOnExist(userId);
-        userValidator.checkUserOnExist(friendId);
+        userValidator.checkUsersOnExist(userId, friendId);
 
         userStorage.removeFriend(userId, friendId);
+        friendGraph.removeFriend(userId, friendId);
         eventLogger.logEvent(userId, FRIEND, REMOVE, friendId);
         log.info("(END) Пользователь '{}' успешно удалил пользователя '{}' из друзей.", userId, friendId);
     }
@@ -65,10 +71,9 @@ public class UserFriendsService {
         log.info("(NEW) Получен запрос от пользователя '{}' на поиск общих друзей с пользователем '{}'",
                 userId, friendId);
 
-        userValidator.checkUserOnExist(userId);
-        userValidator.checkUserOnExist(friendId);
+        userValidator.checkUsersOnExist(userId, friendId);
 
-        List<User> commonFriends = userStorage.getCommonFriends(userId, friendId);
+        List<User> commonFriends = userStorage.getListOfUsersById(friendGraph.getCommonFriendIds(userId, friendId));
 
         if (commonFriends.isEmpty()) {
             log.warn("(END) У пользователей с id = {} и id = {} нет общих друзей", userId, friendId);
@@ -79,4 +84,21 @@ public class UserFriendsService {
 
         return commonFriends;
     }
+
+    /**
+     * @return id кандидата -> число общих с пользователем друзей, в порядке переданных кандидатов
+     */
+    public Map<Long, Integer> countCommonFriends(long userId, List<Long> candidateIds) {
+        log.info("(NEW) Получен запрос от пользователя '{}' на подсчёт общих друзей с {} пользователями",
+                userId, candidateIds.size());
+        pageValidator.checkIdsCount(candidateIds);
+
+        userValidator.checkUsersOnExist(LongStream.concat(LongStream.of(userId),
+                candidateIds.stream().mapToLong(Long::longValue)).toArray());
+
+        Map<Long, Integer> counts = friendGraph.countMutualFriends(userId, candidateIds);
+
+        log.info("(END) Для пользователя с id = {} посчитаны общие друзья с {} пользователями", userId, counts.size());
+        return counts;
+    }
 }
\ No newline at end of file
@@ -3,10 +3,14 @@ package ru.yandex.practicum.filmorate.service.validators;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.apache.commons.collections.CollectionUtils;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.entity.Director;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.repository.DirectorStorage;
 
+import java.util.Set;
+
 @Component
 @RequiredArgsConstructor
 @FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
@@ -14,7 +18,19 @@ public class DirectorValidator {
     DirectorStorage directorStorage;
 
     public void checkDirectorOnExists(long directorId) throws NotFoundException {
-        directorStorage.getDirectorById(directorId).orElseThrow(
-                () -> new NotFoundException("(END) Director was not found. Id = " + directorId));
+        if (!directorStorage.existsById(directorId)) {
+            throw new NotFoundException("(END) Director was not found. Id = " + directorId);
+        }
+    }
+
+    public void checkDirectorsOnExists(Set<Director> directors) throws NotFoundException {
+        if (CollectionUtils.isEmpty(directors)) {
+            return;
+        }
+        if (!directorStorage.existsAllById(directors.stream().map(Director::getId).toList())) {
+            for (Director director : directors) {
+                checkDirectorOnExists(director.getId());
+            }
+        }
     }
 }
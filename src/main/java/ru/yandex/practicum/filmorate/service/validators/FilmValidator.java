@@ -10,7 +10,6 @@ import ru.yandex.practicum.filmorate.exception.InvalidDataRequestException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.repository.FilmStorage;
 
-import java.util.List;
 import java.util.Set;
 
 @Component
@@ -41,12 +40,8 @@ public class FilmValidator {
             return;
         }
 
-        List<Long> allGenreIds = filmRepo.getAllGenres().stream()
-                .map(Genre::getId)
-                .toList();
-
         for (Genre requestGenre : filmGenres) {
-            if (!allGenreIds.contains(requestGenre.getId())) {
+            if (requestGenre.getId() == null || filmRepo.getGenre(requestGenre.getId()).isEmpty()) {
                 throw new InvalidDataRequestException(
                         String.format("Жанр с ID='%d' не найден в БД.", requestGenre.getId()));
             }
@@ -56,7 +51,7 @@ public class FilmValidator {
     public void checkFilmOnExist(long filmId) throws NotFoundException {
         log.debug("(Validator) Валидация фильма на существование в БД. FILM ID = {}", filmId);
 
-        if (filmRepo.getFilmById(filmId).isEmpty()) {
+        if (!filmRepo.existsById(filmId)) {
             throw new NotFoundException("Фильм не найден. ID = " + filmId);
         }
 
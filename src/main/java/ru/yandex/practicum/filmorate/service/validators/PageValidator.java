@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.service.validators;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.InvalidDataRequestException;
+
+import java.util.Collection;
+
+@Slf4j
+@Component
+public class PageValidator {
+    @Value("${filmorate.paging.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${filmorate.paging.max-limit:1000}")
+    private int maxLimit;
+
+    /**
+     * @return размер страницы: переданный limit или размер по умолчанию, если limit не указан
+     */
+    public int checkPageLimit(Integer limit) throws InvalidDataRequestException {
+        log.debug("(Validator) Проверка размера страницы limit = {}", limit);
+
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit <= 0 || limit > maxLimit) {
+            throw new InvalidDataRequestException(
+                    String.format("Размер страницы должен быть от 1 до %d. limit = %d", maxLimit, limit));
+        }
+        return limit;
+    }
+
+    /**
+     * Список id в параметре запроса обрабатывается целиком, поэтому его размер ограничен так же, как размер страницы
+     */
+    public void checkIdsCount(Collection<Long> ids) throws InvalidDataRequestException {
+        log.debug("(Validator) Проверка размера списка id: {}", ids.size());
+
+        if (ids.size() > maxLimit) {
+            throw new InvalidDataRequestException(
+                    String.format("В запросе может быть не больше %d id. Передано: %d", maxLimit, ids.size()));
+        }
+    }
+
+    /**
+     * @return id, после которого начинается страница; 0, если курсор не указан
+     */
+    public long checkPageCursor(Long after) throws InvalidDataRequestException {
+        log.debug("(Validator) Проверка курсора страницы after = {}", after);
+
+        if (after == null) {
+            return 0;
+        }
+        if (after < 0) {
+            throw new InvalidDataRequestException("Курсор страницы не может быть отрицательным. after = " + after);
+        }
+        return after;
+    }
+}
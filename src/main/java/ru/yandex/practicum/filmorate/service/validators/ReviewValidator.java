@@ -15,9 +15,9 @@ public class ReviewValidator {
     public void checkReviewOnExist(long reviewId) throws NotFoundException {
         log.debug("(Validator) Начало проверки наличия отзыва с ID {}.", reviewId);
 
-        reviewStorage.getReviewById(reviewId).orElseThrow(
-                () -> new NotFoundException("Отзыв не найден. ID = " + reviewId)
-        );
+        if (!reviewStorage.existsById(reviewId)) {
+            throw new NotFoundException("Отзыв не найден. ID = " + reviewId);
+        }
 
         log.debug("(Validator) Отзыв с ID {} найден. Проверка завершена.", reviewId);
     }
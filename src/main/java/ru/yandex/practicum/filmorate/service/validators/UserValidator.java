@@ -6,6 +6,9 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
 
+import java.util.Arrays;
+import java.util.List;
+
 @Slf4j
 @AllArgsConstructor
 @Component
@@ -15,10 +18,27 @@ public class UserValidator {
     public void checkUserOnExist(long userId) throws NotFoundException {
         log.debug("(Validator) Начало проверки существования пользователя '{}' в БД.", userId);
 
-        userStorage.getUserById(userId).orElseThrow(
-                () -> new NotFoundException("Пользователь не найден. ID = " + userId)
-        );
+        if (!userStorage.existsById(userId)) {
+            throw new NotFoundException("Пользователь не найден. ID = " + userId);
+        }
 
         log.debug("(Validator) Пользователь '{}' найден. Проверка выполнена.", userId);
     }
-}
\ No newline at end of file
+
+    /**
+     * Проверяет существование сразу нескольких пользователей одним запросом.
+     * Если хотя бы один не найден, ищет его отдельно, чтобы вернуть корректное сообщение об ошибке
+     */
+    public void checkUsersOnExist(long... userIds) throws NotFoundException {
+        List<Long> ids = Arrays.stream(userIds).boxed().toList();
+        log.debug("(Validator) Начало проверки существования пользователей {} в БД.", ids);
+
+        if (!userStorage.existsAllById(ids)) {
+            for (long userId : userIds) {
+                checkUserOnExist(userId);
+            }
+        }
+
+        log.debug("(Validator) Пользователи {} найдены. Проверка выполнена.", ids);
+    }
+}
@@ -13,4 +13,7 @@ INSERT INTO genres (name) VALUES
                               ('Мультфильм'),
                               ('Триллер'),
                               ('Документальный'),
-                              ('Боевик');
\ No newline at end of file
+                              ('Боевик');
+
+-- Для таблицы replica_heartbeat
+INSERT INTO replica_heartbeat (id, written_at) VALUES (1, 0);
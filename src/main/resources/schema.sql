@@ -1,5 +1,5 @@
 DROP TABLE IF EXISTS mpa, users, films, genres, directors, films_genres, users_films_like, friendship,
-    reviews, reviews_likes, films_directors, events;
+    reviews, reviews_likes, films_directors, events, replica_heartbeat;
 
 -- Таблица mpa
 CREATE TABLE IF NOT EXISTS mpa (
@@ -23,7 +23,10 @@ CREATE TABLE IF NOT EXISTS films (
     description VARCHAR(200),
     release_date DATE,
     duration INTEGER CHECK(duration > 0),
-    mpa_id BIGINT REFERENCES mpa(mpa_id)
+    mpa_id BIGINT REFERENCES mpa(mpa_id),
+    -- Денормализованное число лайков. Поддерживается DbFilmStorage при добавлении/удалении лайка
+    -- и DbUserStorage при удалении пользователя. Сверяется с users_films_like задачей LikesCountReconciler
+    likes_count INTEGER NOT NULL DEFAULT 0 CHECK(likes_count >= 0)
 );
 
 -- Таблица всех жанров. Названия жанров уникальны
@@ -40,6 +43,9 @@ CREATE TABLE IF NOT EXISTS films_genres (
     PRIMARY KEY (film_id, genre_id)
 );
 
+-- Первичный ключ начинается с film_id, а фильмы жанра ищутся по genre_id
+CREATE INDEX IF NOT EXISTS films_genres_genre_id_idx ON films_genres (genre_id, film_id);
+
 -- Таблица связи many-to-many между пользователями и фильмами (для лайков)
 CREATE TABLE IF NOT EXISTS users_films_like (
     user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
@@ -47,6 +53,9 @@ CREATE TABLE IF NOT EXISTS users_films_like (
     PRIMARY KEY (user_id, film_id)
 );
 
+-- Первичный ключ начинается с user_id, а лайки фильма ищутся по film_id
+CREATE INDEX IF NOT EXISTS users_films_like_film_id_idx ON users_films_like (film_id, user_id);
+
 -- Удаляется пользователь - удаляется 2 записи в таблице (если дружба авторизована)
 -- 1 запись - если дружба не авторизована
 CREATE TABLE IF NOT EXISTS friendship (
@@ -55,6 +64,9 @@ CREATE TABLE IF NOT EXISTS friendship (
     PRIMARY KEY (user_id, friend_id)
 );
 
+-- Пользователи, добавившие в друзья данного, ищутся по friend_id (каскадное удаление пользователя)
+CREATE INDEX IF NOT EXISTS friendship_friend_id_idx ON friendship (friend_id, user_id);
+
 -- Таблица режиссеров
 CREATE TABLE IF NOT EXISTS directors (
     id BIGSERIAL PRIMARY KEY,
@@ -68,15 +80,27 @@ CREATE TABLE IF NOT EXISTS films_directors (
     PRIMARY KEY (film_id, director_id)
 );
 
+-- Первичный ключ начинается с film_id, а фильмы режиссёра ищутся по director_id
+CREATE INDEX IF NOT EXISTS films_directors_director_id_idx ON films_directors (director_id, film_id);
+
 -- Таблица отзывов
 CREATE TABLE IF NOT EXISTS reviews (
     id BIGSERIAL PRIMARY KEY,
     user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
     film_id BIGINT NOT NULL REFERENCES films (film_id) ON DELETE CASCADE,
     is_positive BOOLEAN,
-    content VARCHAR(200)
+    content VARCHAR(200),
+    -- Денормализованная полезность: число лайков минус число дизлайков из reviews_likes.
+    -- Поддерживается DbReviewStorage при оценке отзыва и DbUserStorage при удалении пользователя
+    useful INTEGER NOT NULL DEFAULT 0
 );
 
+-- Отзывы к фильму и ко всем фильмам читаются по индексу сразу в порядке убывания полезности
+CREATE INDEX IF NOT EXISTS reviews_film_useful_idx ON reviews (film_id, useful DESC, id);
+CREATE INDEX IF NOT EXISTS reviews_useful_idx ON reviews (useful DESC, id);
+-- Отзывы пользователя ищутся по user_id (пересчёт полезности и каскадное удаление пользователя)
+CREATE INDEX IF NOT EXISTS reviews_user_id_idx ON reviews (user_id, id);
+
 -- Таблица лайков для отзывов
 CREATE TABLE IF NOT EXISTS reviews_likes (
     review_id BIGINT NOT NULL REFERENCES reviews (id) ON DELETE CASCADE,
@@ -87,9 +111,21 @@ CREATE TABLE IF NOT EXISTS reviews_likes (
 
 -- Таблица событий
 CREATE TABLE IF NOT EXISTS events (
+    id BIGSERIAL PRIMARY KEY,
     user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
     type_id INTEGER NOT NULL,
     operation_id INTEGER NOT NULL,
     entity_id BIGINT NOT NULL,
     event_timestamp BIGINT NOT NULL
-);
\ No newline at end of file
+);
+
+-- Лента пользователя читается по user_id. Порядок (user_id DESC, id DESC) совпадает с ORDER BY страницы ленты,
+-- поэтому страница читается из индекса без сортировки всех событий пользователя
+CREATE INDEX IF NOT EXISTS events_user_id_idx ON events (user_id DESC, id DESC);
+
+-- Таблица replica_heartbeat: время последней записи heartbeat в основную БД (мс). Вместе с остальными данными
+-- доходит до реплики, по нему ReplicaLagMonitor измеряет отставание реплики
+CREATE TABLE IF NOT EXISTS replica_heartbeat (
+    id INTEGER PRIMARY KEY,
+    written_at BIGINT NOT NULL
+);
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.entity.Film;
+import ru.yandex.practicum.filmorate.entity.Genre;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class FilmPopularityLeaderboardTest {
+    private FilmPopularityLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        leaderboard = new FilmPopularityLeaderboard(mock(JdbcTemplate.class));
+        leaderboard.onFilmSaved(film(1, 2010, 1L));
+        leaderboard.onFilmSaved(film(2, 2010, 1L));
+        leaderboard.onLikeAdded(1);
+        leaderboard.onLikeAdded(1);
+        leaderboard.onLikeAdded(2);
+    }
+
+    @Test
+    void updateWithUnchangedLikesKeepsFilmInAllRatings() {
+        leaderboard.onFilmSaved(film(1, 2010, 1L));
+
+        assertEquals(List.of(1L, 2L), leaderboard.getTopFilmIds(10));
+        assertEquals(List.of(1L, 2L), leaderboard.getTopFilmIdsByGenreAndYear(10, 1, 2010));
+        assertEquals(List.of(1L, 2L), leaderboard.getTopFilmIdsByGenreOrYear(10, 1L, null));
+        assertEquals(List.of(1L, 2L), leaderboard.getTopFilmIdsByGenreOrYear(10, null, 2010));
+    }
+
+    @Test
+    void updateWithChangedGenresMovesFilmBetweenGenreRatings() {
+        leaderboard.onFilmSaved(film(1, 2010, 2L, 3L));
+
+        assertEquals(List.of(1L, 2L), leaderboard.getTopFilmIds(10));
+        assertEquals(List.of(2L), leaderboard.getTopFilmIdsByGenreOrYear(10, 1L, null));
+        assertEquals(List.of(1L), leaderboard.getTopFilmIdsByGenreOrYear(10, 2L, null));
+        assertEquals(List.of(1L), leaderboard.getTopFilmIdsByGenreAndYear(10, 3, 2010));
+        assertEquals(List.of(1L, 2L), leaderboard.getTopFilmIdsByGenreOrYear(10, null, 2010));
+    }
+
+    @Test
+    void updateWithChangedYearMovesFilmBetweenYearRatings() {
+        leaderboard.onFilmSaved(film(1, 1999, 1L));
+
+        assertEquals(List.of(1L, 2L), leaderboard.getTopFilmIds(10));
+        assertEquals(List.of(2L), leaderboard.getTopFilmIdsByGenreOrYear(10, null, 2010));
+        assertEquals(List.of(1L), leaderboard.getTopFilmIdsByGenreOrYear(10, null, 1999));
+        assertEquals(List.of(1L), leaderboard.getTopFilmIdsByGenreAndYear(10, 1, 1999));
+        assertEquals(List.of(1L, 2L), leaderboard.getTopFilmIdsByGenreOrYear(10, 1L, null));
+    }
+
+    private static Film film(long id, int year, Long... genreIds) {
+        return Film.builder()
+                .id(id)
+                .name("Film " + id)
+                .releaseDate(LocalDate.of(year, 1, 1))
+                .duration(100)
+                .genres(Arrays.stream(genreIds)
+                        .map(genreId -> new Genre(genreId, "Genre " + genreId))
+                        .collect(Collectors.toSet()))
+                .build();
+    }
+}